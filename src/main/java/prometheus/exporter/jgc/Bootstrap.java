@@ -20,39 +20,118 @@ import static prometheus.exporter.jgc.metric.MetricRegistry.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.github.lalyos.jfiglet.FigletFont;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import io.prometheus.client.exporter.HTTPServer;
 import io.prometheus.client.exporter.SampleNameFilterSupplier;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.exposition.CachedMetricsHandler;
+import prometheus.exporter.jgc.exposition.ExpositionCache;
+import prometheus.exporter.jgc.exposition.NioExpositionServer;
+import prometheus.exporter.jgc.exposition.PageHandler;
+import prometheus.exporter.jgc.jfr.JfrRepositoryManager;
+import prometheus.exporter.jgc.metric.Distribution;
+import prometheus.exporter.jgc.metric.HostRollup;
 import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.metric.PathLabels;
+import prometheus.exporter.jgc.metric.SeriesEvictor;
+import prometheus.exporter.jgc.metric.SlidingWindow;
 import prometheus.exporter.jgc.parser.GCEventHandlerManager;
+import prometheus.exporter.jgc.perfdata.PerfDataManager;
+import prometheus.exporter.jgc.remote.RemoteWriter;
+import prometheus.exporter.jgc.sketch.SketchCodec;
 import prometheus.exporter.jgc.tailer.TailerManager;
 import prometheus.exporter.jgc.util.OperatingSystem;
 
 public class Bootstrap {
     private static final Logger LOG = LoggerFactory.getLogger(Bootstrap.class);
-    private final HTTPServer httpServer;
+    private final Closeable httpServer;
     private final TailerManager tailerManager;
     private final GCEventHandlerManager eventHandlerManager;
+    private final PerfDataManager perfDataManager;
+    private final JfrRepositoryManager jfrRepositoryManager;
+    private final RemoteWriter remoteWriter;
+    private final SeriesEvictor seriesEvictor;
 
     public Bootstrap(Config config) throws Exception {
+        Distribution.configure(config.getHistogramFamilies(), config.getHistogramBuckets());
+        SlidingWindow.configure(config.getEventWindows());
+        Distribution.configureSketches(
+                config.getSketchFamilies(), config.getSketchRelativeAccuracy());
+        PathLabels.configure(
+                config.getPathLabelRules(), config.getPathLabelNames(), config.getPathLabelLimit());
+        MetricRegistry.configure(config.getIncludeFamilies(), config.getExcludeFamilies());
+        HostRollup.configure(config.isHostRollups());
         registerSystemMetrics();
+        this.seriesEvictor = new SeriesEvictor(config.getSeriesTtl(), config.getMaxSeries());
         String hostPort = config.getHostPort();
         String host = hostPort.split(":")[0];
         int port = Integer.parseInt(hostPort.split(":")[1]);
-        this.httpServer =
-                new HTTPServer.Builder()
-                        .withHostname(host)
-                        .withPort(port)
-                        .withRegistry(MetricRegistry.SINGLETON)
-                        .withSampleNameFilterSupplier(
-                                SampleNameFilterSupplier.of(this::filterSamples))
-                        .withDaemonThreads(false)
-                        .build();
-        this.eventHandlerManager = new GCEventHandlerManager();
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        ExpositionCache cache =
+                new ExpositionCache(
+                        MetricRegistry.SINGLETON,
+                        this::filterSamples,
+                        config.getMetricsCacheInterval(),
+                        config.isMetricsCacheOnChange(),
+                        config.isMetricsCacheGzip());
+        Callable<byte[]> sketches =
+                () -> SketchCodec.encode(SketchCodec.of(MetricRegistry.SINGLETON.sketches()));
+        if (config.isNioServer()) {
+            NioExpositionServer server =
+                    new NioExpositionServer(
+                            address, cache, config.getNioWorkers(), config.getNioTimeout());
+            server.addPage("/sketches", SketchCodec.CONTENT_TYPE, sketches);
+            this.httpServer = server;
+        } else {
+            HttpServer server = HttpServer.create(address, 3);
+            this.httpServer =
+                    new HTTPServer.Builder()
+                            .withHttpServer(server)
+                            .withRegistry(MetricRegistry.SINGLETON)
+                            .withSampleNameFilterSupplier(
+                                    SampleNameFilterSupplier.of(this::filterSamples))
+                            .withDaemonThreads(false)
+                            .build();
+            HttpHandler handler = new CachedMetricsHandler(cache);
+            server.removeContext("/");
+            server.removeContext("/metrics");
+            server.createContext("/", handler);
+            server.createContext("/metrics", handler);
+            server.createContext("/sketches", new PageHandler(SketchCodec.CONTENT_TYPE, sketches));
+        }
+        if (config.getRemoteWriteUrl() != null) {
+            this.remoteWriter =
+                    new RemoteWriter(
+                            MetricRegistry.SINGLETON,
+                            this::filterSamples,
+                            config.getRemoteWriteUrl(),
+                            config.getRemoteWriteInterval(),
+                            config.getRemoteWriteBatchSize(),
+                            config.getRemoteWriteQueueSize(),
+                            config.getRemoteWriteRetries());
+            // the last values are pushed when the exporter stops
+            Runtime.getRuntime()
+                    .addShutdownHook(new Thread(remoteWriter::close, "remote-writer-close"));
+        } else {
+            this.remoteWriter = null;
+        }
+        this.eventHandlerManager = new GCEventHandlerManager(config);
         this.tailerManager = new TailerManager(config, eventHandlerManager);
+        this.perfDataManager =
+                config.getPerfDataGlobPattern() != null ? new PerfDataManager(config) : null;
+        this.jfrRepositoryManager =
+                config.getJfrGlobPattern() != null ? new JfrRepositoryManager(config) : null;
     }
 
     public static void main(String[] args) throws Exception {
@@ -91,8 +170,106 @@ public class Bootstrap {
             throw new IllegalArgumentException("hostPort");
         }
 
-        if (config.getFileRegexPattern() == null && config.getFileGlobPattern() == null) {
-            throw new IllegalArgumentException("must specify fileRegexPattern or fileGlobPattern");
+        if (config.getFileRegexPattern() == null
+                && config.getFileGlobPattern() == null
+                && !config.isProcDiscovery()
+                && config.getPerfDataGlobPattern() == null
+                && config.getJfrGlobPattern() == null) {
+            throw new IllegalArgumentException(
+                    "must specify fileRegexPattern, fileGlobPattern, procDiscovery,"
+                            + " perfDataGlobPattern or jfrGlobPattern");
+        }
+
+        if (config.getPerfDataInterval() <= 0) {
+            throw new IllegalArgumentException("perfDataInterval");
+        }
+
+        if (config.getNioWorkers() <= 0) {
+            throw new IllegalArgumentException("nioWorkers");
+        }
+
+        if (config.getNioTimeout() <= 0) {
+            throw new IllegalArgumentException("nioTimeout");
+        }
+
+        if (config.getMetricsCacheInterval() < 0) {
+            throw new IllegalArgumentException("metricsCacheInterval");
+        }
+
+        if (!(config.getSketchRelativeAccuracy() > 0 && config.getSketchRelativeAccuracy() < 1)) {
+            throw new IllegalArgumentException("sketchRelativeAccuracy");
+        }
+
+        if (config.getEventWindows() != null) {
+            if (config.getEventWindows().isEmpty()) {
+                throw new IllegalArgumentException("eventWindows");
+            }
+            for (Integer window : config.getEventWindows()) {
+                // one bucket per second of the widest window is kept for each log
+                if (window == null || window <= 0 || window > 3600) {
+                    throw new IllegalArgumentException("eventWindows");
+                }
+            }
+        }
+
+        if (config.getRemoteWriteUrl() != null) {
+            if (config.getRemoteWriteInterval() <= 0) {
+                throw new IllegalArgumentException("remoteWriteInterval");
+            }
+            if (config.getRemoteWriteBatchSize() <= 0) {
+                throw new IllegalArgumentException("remoteWriteBatchSize");
+            }
+            if (config.getRemoteWriteQueueSize() <= 0) {
+                throw new IllegalArgumentException("remoteWriteQueueSize");
+            }
+            if (config.getRemoteWriteRetries() < 0) {
+                throw new IllegalArgumentException("remoteWriteRetries");
+            }
+        }
+
+        if (config.getSeriesTtl() < 0) {
+            throw new IllegalArgumentException("seriesTtl");
+        }
+
+        if (config.getMaxSeries() < 0) {
+            throw new IllegalArgumentException("maxSeries");
+        }
+
+        if (config.getPathLabelRules() != null) {
+            for (String rule : config.getPathLabelRules()) {
+                try {
+                    Pattern.compile(rule);
+                } catch (PatternSyntaxException ex) {
+                    throw new IllegalArgumentException("pathLabelRules", ex);
+                }
+            }
+            List<String> names = config.getPathLabelNames();
+            if (names == null || names.isEmpty() || new HashSet<>(names).size() != names.size()) {
+                throw new IllegalArgumentException("pathLabelNames");
+            }
+            for (String name : names) {
+                if (name == null
+                        || !name.matches("[a-zA-Z_][a-zA-Z0-9_]*")
+                        || PathLabels.RESERVED.contains(name)) {
+                    throw new IllegalArgumentException("pathLabelNames");
+                }
+            }
+        }
+
+        if (config.getPathLabelLimit() < 0) {
+            throw new IllegalArgumentException("pathLabelLimit");
+        }
+
+        if (config.getShedLagBytes() < 0) {
+            throw new IllegalArgumentException("shedLagBytes");
+        }
+
+        if (!(config.getShedCpuLoad() >= 0 && config.getShedCpuLoad() <= 1)) {
+            throw new IllegalArgumentException("shedCpuLoad");
+        }
+
+        if (config.getShedTags() == null) {
+            throw new IllegalArgumentException("shedTags");
         }
 
         if (config.getIdleTimeout() <= 0) {
@@ -16,6 +16,10 @@
 package prometheus.exporter.jgc;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Config {
@@ -26,6 +30,18 @@ public class Config {
     public static final int DEFAULT_LINES_PER_SECOND = Integer.MAX_VALUE;
     public static final int DEFAULT_WATCH_INTERVAL = 30000;
     public static final int DEFAULT_READ_INTERVAL = 1_000;
+    public static final String DEFAULT_PROC_ROOT = "/proc";
+    public static final int DEFAULT_PERF_DATA_INTERVAL = 5_000;
+    public static final int DEFAULT_NIO_WORKERS = 2;
+    public static final int DEFAULT_NIO_TIMEOUT = 30_000;
+    public static final double DEFAULT_SKETCH_RELATIVE_ACCURACY = 0.01;
+    public static final int DEFAULT_REMOTE_WRITE_INTERVAL = 15_000;
+    public static final int DEFAULT_REMOTE_WRITE_BATCH_SIZE = 2_000;
+    public static final int DEFAULT_REMOTE_WRITE_QUEUE_SIZE = 100;
+    public static final int DEFAULT_REMOTE_WRITE_RETRIES = 3;
+    // gc,cpu is not shed, the unified G1 parser completes a pause on it
+    public static final List<String> DEFAULT_SHED_TAGS =
+            Collections.unmodifiableList(Arrays.asList("gc,task"));
     private String fileRegexPattern;
     private String fileGlobPattern;
     private String hostPort = DEFAULT_HOST_PORT;
@@ -36,6 +52,41 @@ public class Config {
     private int watchInterval = DEFAULT_WATCH_INTERVAL;
     private int readInterval = DEFAULT_READ_INTERVAL;
     private int scanFilesPerSecond;
+    private boolean fileAliasLabel;
+    private boolean procDiscovery;
+    private String procRoot = DEFAULT_PROC_ROOT;
+    private String perfDataGlobPattern;
+    private int perfDataInterval = DEFAULT_PERF_DATA_INTERVAL;
+    private String jfrGlobPattern;
+    private boolean fastG1Parser;
+    private boolean parallelParsers;
+    private List<String> histogramFamilies;
+    private Map<String, List<Double>> histogramBuckets;
+    private List<Integer> eventWindows;
+    private List<String> sketchFamilies;
+    private int seriesTtl;
+    private int maxSeries;
+    private List<String> pathLabelRules;
+    private List<String> pathLabelNames;
+    private int pathLabelLimit;
+    private boolean hostRollups;
+    private int shedLagBytes;
+    private double shedCpuLoad;
+    private List<String> shedTags = DEFAULT_SHED_TAGS;
+    private double sketchRelativeAccuracy = DEFAULT_SKETCH_RELATIVE_ACCURACY;
+    private int metricsCacheInterval;
+    private List<String> includeFamilies;
+    private List<String> excludeFamilies;
+    private boolean nioServer;
+    private int nioWorkers = DEFAULT_NIO_WORKERS;
+    private int nioTimeout = DEFAULT_NIO_TIMEOUT;
+    private boolean metricsCacheOnChange;
+    private boolean metricsCacheGzip;
+    private String remoteWriteUrl;
+    private int remoteWriteInterval = DEFAULT_REMOTE_WRITE_INTERVAL;
+    private int remoteWriteBatchSize = DEFAULT_REMOTE_WRITE_BATCH_SIZE;
+    private int remoteWriteQueueSize = DEFAULT_REMOTE_WRITE_QUEUE_SIZE;
+    private int remoteWriteRetries = DEFAULT_REMOTE_WRITE_RETRIES;
 
     public String getFileRegexPattern() {
         return fileRegexPattern;
@@ -117,6 +168,286 @@ public class Config {
         this.scanFilesPerSecond = scanFilesPerSecond;
     }
 
+    public boolean isFileAliasLabel() {
+        return fileAliasLabel;
+    }
+
+    public void setFileAliasLabel(boolean fileAliasLabel) {
+        this.fileAliasLabel = fileAliasLabel;
+    }
+
+    public boolean isProcDiscovery() {
+        return procDiscovery;
+    }
+
+    public void setProcDiscovery(boolean procDiscovery) {
+        this.procDiscovery = procDiscovery;
+    }
+
+    public String getProcRoot() {
+        return procRoot;
+    }
+
+    public void setProcRoot(String procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    public String getPerfDataGlobPattern() {
+        return perfDataGlobPattern;
+    }
+
+    public void setPerfDataGlobPattern(String perfDataGlobPattern) {
+        this.perfDataGlobPattern = perfDataGlobPattern;
+    }
+
+    public int getPerfDataInterval() {
+        return perfDataInterval;
+    }
+
+    public void setPerfDataInterval(int perfDataInterval) {
+        this.perfDataInterval = perfDataInterval;
+    }
+
+    public String getJfrGlobPattern() {
+        return jfrGlobPattern;
+    }
+
+    public void setJfrGlobPattern(String jfrGlobPattern) {
+        this.jfrGlobPattern = jfrGlobPattern;
+    }
+
+    public boolean isFastG1Parser() {
+        return fastG1Parser;
+    }
+
+    public void setFastG1Parser(boolean fastG1Parser) {
+        this.fastG1Parser = fastG1Parser;
+    }
+
+    public boolean isParallelParsers() {
+        return parallelParsers;
+    }
+
+    public void setParallelParsers(boolean parallelParsers) {
+        this.parallelParsers = parallelParsers;
+    }
+
+    public List<String> getHistogramFamilies() {
+        return histogramFamilies;
+    }
+
+    public void setHistogramFamilies(List<String> histogramFamilies) {
+        this.histogramFamilies = histogramFamilies;
+    }
+
+    public Map<String, List<Double>> getHistogramBuckets() {
+        return histogramBuckets;
+    }
+
+    public void setHistogramBuckets(Map<String, List<Double>> histogramBuckets) {
+        this.histogramBuckets = histogramBuckets;
+    }
+
+    public int getMetricsCacheInterval() {
+        return metricsCacheInterval;
+    }
+
+    public void setMetricsCacheInterval(int metricsCacheInterval) {
+        this.metricsCacheInterval = metricsCacheInterval;
+    }
+
+    public boolean isMetricsCacheOnChange() {
+        return metricsCacheOnChange;
+    }
+
+    public void setMetricsCacheOnChange(boolean metricsCacheOnChange) {
+        this.metricsCacheOnChange = metricsCacheOnChange;
+    }
+
+    public boolean isMetricsCacheGzip() {
+        return metricsCacheGzip;
+    }
+
+    public void setMetricsCacheGzip(boolean metricsCacheGzip) {
+        this.metricsCacheGzip = metricsCacheGzip;
+    }
+
+    public List<String> getIncludeFamilies() {
+        return includeFamilies;
+    }
+
+    public void setIncludeFamilies(List<String> includeFamilies) {
+        this.includeFamilies = includeFamilies;
+    }
+
+    public List<String> getExcludeFamilies() {
+        return excludeFamilies;
+    }
+
+    public void setExcludeFamilies(List<String> excludeFamilies) {
+        this.excludeFamilies = excludeFamilies;
+    }
+
+    public boolean isNioServer() {
+        return nioServer;
+    }
+
+    public void setNioServer(boolean nioServer) {
+        this.nioServer = nioServer;
+    }
+
+    public int getNioWorkers() {
+        return nioWorkers;
+    }
+
+    public void setNioWorkers(int nioWorkers) {
+        this.nioWorkers = nioWorkers;
+    }
+
+    public int getNioTimeout() {
+        return nioTimeout;
+    }
+
+    public void setNioTimeout(int nioTimeout) {
+        this.nioTimeout = nioTimeout;
+    }
+
+    public String getRemoteWriteUrl() {
+        return remoteWriteUrl;
+    }
+
+    public void setRemoteWriteUrl(String remoteWriteUrl) {
+        this.remoteWriteUrl = remoteWriteUrl;
+    }
+
+    public int getRemoteWriteInterval() {
+        return remoteWriteInterval;
+    }
+
+    public void setRemoteWriteInterval(int remoteWriteInterval) {
+        this.remoteWriteInterval = remoteWriteInterval;
+    }
+
+    public int getRemoteWriteBatchSize() {
+        return remoteWriteBatchSize;
+    }
+
+    public void setRemoteWriteBatchSize(int remoteWriteBatchSize) {
+        this.remoteWriteBatchSize = remoteWriteBatchSize;
+    }
+
+    public int getRemoteWriteQueueSize() {
+        return remoteWriteQueueSize;
+    }
+
+    public void setRemoteWriteQueueSize(int remoteWriteQueueSize) {
+        this.remoteWriteQueueSize = remoteWriteQueueSize;
+    }
+
+    public int getRemoteWriteRetries() {
+        return remoteWriteRetries;
+    }
+
+    public void setRemoteWriteRetries(int remoteWriteRetries) {
+        this.remoteWriteRetries = remoteWriteRetries;
+    }
+
+    public List<Integer> getEventWindows() {
+        return eventWindows;
+    }
+
+    public void setEventWindows(List<Integer> eventWindows) {
+        this.eventWindows = eventWindows;
+    }
+
+    public List<String> getSketchFamilies() {
+        return sketchFamilies;
+    }
+
+    public void setSketchFamilies(List<String> sketchFamilies) {
+        this.sketchFamilies = sketchFamilies;
+    }
+
+    public double getSketchRelativeAccuracy() {
+        return sketchRelativeAccuracy;
+    }
+
+    public void setSketchRelativeAccuracy(double sketchRelativeAccuracy) {
+        this.sketchRelativeAccuracy = sketchRelativeAccuracy;
+    }
+
+    public int getSeriesTtl() {
+        return seriesTtl;
+    }
+
+    public void setSeriesTtl(int seriesTtl) {
+        this.seriesTtl = seriesTtl;
+    }
+
+    public int getMaxSeries() {
+        return maxSeries;
+    }
+
+    public void setMaxSeries(int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    public List<String> getPathLabelRules() {
+        return pathLabelRules;
+    }
+
+    public void setPathLabelRules(List<String> pathLabelRules) {
+        this.pathLabelRules = pathLabelRules;
+    }
+
+    public List<String> getPathLabelNames() {
+        return pathLabelNames;
+    }
+
+    public void setPathLabelNames(List<String> pathLabelNames) {
+        this.pathLabelNames = pathLabelNames;
+    }
+
+    public int getPathLabelLimit() {
+        return pathLabelLimit;
+    }
+
+    public void setPathLabelLimit(int pathLabelLimit) {
+        this.pathLabelLimit = pathLabelLimit;
+    }
+
+    public boolean isHostRollups() {
+        return hostRollups;
+    }
+
+    public void setHostRollups(boolean hostRollups) {
+        this.hostRollups = hostRollups;
+    }
+
+    public int getShedLagBytes() {
+        return shedLagBytes;
+    }
+
+    public void setShedLagBytes(int shedLagBytes) {
+        this.shedLagBytes = shedLagBytes;
+    }
+
+    public double getShedCpuLoad() {
+        return shedCpuLoad;
+    }
+
+    public void setShedCpuLoad(double shedCpuLoad) {
+        this.shedCpuLoad = shedCpuLoad;
+    }
+
+    public List<String> getShedTags() {
+        return shedTags;
+    }
+
+    public void setShedTags(List<String> shedTags) {
+        this.shedTags = shedTags;
+    }
+
     @Override
     public String toString() {
         return "Config{"
@@ -141,6 +472,80 @@ public class Config {
                 + watchInterval
                 + ", scanFilesPerSecond="
                 + scanFilesPerSecond
+                + ", fileAliasLabel="
+                + fileAliasLabel
+                + ", procDiscovery="
+                + procDiscovery
+                + ", procRoot='"
+                + procRoot
+                + '\''
+                + ", perfDataGlobPattern='"
+                + perfDataGlobPattern
+                + '\''
+                + ", perfDataInterval="
+                + perfDataInterval
+                + ", jfrGlobPattern='"
+                + jfrGlobPattern
+                + '\''
+                + ", fastG1Parser="
+                + fastG1Parser
+                + ", parallelParsers="
+                + parallelParsers
+                + ", eventWindows="
+                + eventWindows
+                + ", seriesTtl="
+                + seriesTtl
+                + ", maxSeries="
+                + maxSeries
+                + ", pathLabelRules="
+                + pathLabelRules
+                + ", pathLabelNames="
+                + pathLabelNames
+                + ", pathLabelLimit="
+                + pathLabelLimit
+                + ", hostRollups="
+                + hostRollups
+                + ", shedLagBytes="
+                + shedLagBytes
+                + ", shedCpuLoad="
+                + shedCpuLoad
+                + ", shedTags="
+                + shedTags
+                + ", sketchFamilies="
+                + sketchFamilies
+                + ", sketchRelativeAccuracy="
+                + sketchRelativeAccuracy
+                + ", histogramFamilies="
+                + histogramFamilies
+                + ", histogramBuckets="
+                + histogramBuckets
+                + ", metricsCacheInterval="
+                + metricsCacheInterval
+                + ", metricsCacheOnChange="
+                + metricsCacheOnChange
+                + ", metricsCacheGzip="
+                + metricsCacheGzip
+                + ", includeFamilies="
+                + includeFamilies
+                + ", excludeFamilies="
+                + excludeFamilies
+                + ", nioServer="
+                + nioServer
+                + ", nioWorkers="
+                + nioWorkers
+                + ", nioTimeout="
+                + nioTimeout
+                + ", remoteWriteUrl='"
+                + remoteWriteUrl
+                + '\''
+                + ", remoteWriteInterval="
+                + remoteWriteInterval
+                + ", remoteWriteBatchSize="
+                + remoteWriteBatchSize
+                + ", remoteWriteQueueSize="
+                + remoteWriteQueueSize
+                + ", remoteWriteRetries="
+                + remoteWriteRetries
                 + '}';
     }
 }
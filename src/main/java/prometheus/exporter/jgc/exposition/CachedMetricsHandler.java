@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serve the metrics page from an {@link ExpositionCache}, in OpenMetrics when the Accept header
+ * asks for it. Requests selecting families with {@code name[]} bypass the cache, identical ones in
+ * flight still share a rendering.
+ */
+public class CachedMetricsHandler implements HttpHandler {
+    private final ExpositionCache cache;
+
+    public CachedMetricsHandler(ExpositionCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            Set<String> names = parseQuery(exchange.getRequestURI().getRawQuery());
+            String contentType =
+                    TextFormat.chooseContentType(exchange.getRequestHeaders().getFirst("Accept"));
+            ExpositionCache.Payload payload = cache.get(contentType, names);
+            byte[] text = payload.getText();
+            byte[] gzip = payload.getGzip();
+            byte[] body = text;
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if (acceptsGzip(exchange)) {
+                body = gzip != null ? gzip : ExpositionCache.compress(text);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, head ? -1 : body.length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+        if (headers == null) {
+            return false;
+        }
+        for (String header : headers) {
+            for (String encoding : header.split(",")) {
+                if (encoding.trim().equalsIgnoreCase("gzip")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static Set<String> parseQuery(String query) {
+        Set<String> names = new HashSet<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int idx = pair.indexOf('=');
+                if (idx != -1
+                        && URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8)
+                                .equals("name[]")) {
+                    names.add(URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Predicate;
+import io.prometheus.client.SampleNameFilter;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Exposition rendered at most once per interval and format, and shared by all scrapers. With {@code
+ * onChange} a page is only rendered again once {@link MetricRegistry#version()} moved, so decaying
+ * summary quantiles are frozen until the next update. Without an interval every scrape renders, but
+ * scrapes arriving during a rendering of the same format and families share its result.
+ */
+public class ExpositionCache {
+    private final CollectorRegistry registry;
+    private final Predicate<String> filter;
+    private final long interval;
+    private final boolean onChange;
+    private final boolean gzip;
+    private final Gauge.Child renderSeconds;
+    private final Gauge.Child textBytes;
+    private final Gauge.Child gzipBytes;
+    private final Counter.Child renders;
+    private final Counter.Child coalesced;
+    private final Map<List<Object>, CompletableFuture<Payload>> flights;
+    private final Map<String, Payload> payloads;
+
+    public ExpositionCache(
+            CollectorRegistry registry,
+            Predicate<String> filter,
+            long interval,
+            boolean onChange,
+            boolean gzip) {
+        this.registry = registry;
+        this.filter = filter;
+        this.interval = interval;
+        this.onChange = onChange;
+        this.gzip = gzip;
+        String host = OperatingSystem.getLocalHostName();
+        this.renderSeconds = EXPOSITION_RENDER_DURATION.attach(this, host);
+        this.textBytes = EXPOSITION_SIZE.attach(this, host, "identity");
+        this.gzipBytes = gzip ? EXPOSITION_SIZE.attach(this, host, "gzip") : null;
+        this.renders = EXPOSITION_RENDERS.attach(this, host);
+        this.coalesced = EXPOSITION_COALESCED_REQUESTS.attach(this, host);
+        this.flights = new ConcurrentHashMap<>();
+        this.payloads = new ConcurrentHashMap<>();
+    }
+
+    /** Cached text format 0.0.4 payload, rendered by the first caller once it is stale. */
+    public Payload get() throws IOException {
+        return get(TextFormat.CONTENT_TYPE_004, Collections.emptySet());
+    }
+
+    /**
+     * Payload of {@code contentType} as chosen by {@link TextFormat#chooseContentType}. Payloads of
+     * the requested families only are never cached, but shared by concurrent callers.
+     */
+    public Payload get(String contentType, Set<String> names) throws IOException {
+        if (!names.isEmpty()) {
+            return coalesce(
+                    contentType,
+                    names,
+                    () ->
+                            new Payload(
+                                    render(
+                                            registry,
+                                            SampleNameFilter.restrictToNamesEqualTo(filter, names),
+                                            contentType),
+                                    null,
+                                    contentType,
+                                    0));
+        }
+        Payload payload = payloads.get(contentType);
+        if (isFresh(payload)) {
+            return payload;
+        }
+        return coalesce(contentType, names, () -> refresh(contentType));
+    }
+
+    /** Only one rendering per key at a time, callers arriving meanwhile wait for its result. */
+    private Payload coalesce(String contentType, Set<String> names, Callable<Payload> render)
+            throws IOException {
+        List<Object> key = Arrays.asList(contentType, names);
+        CompletableFuture<Payload> flight = new CompletableFuture<>();
+        CompletableFuture<Payload> leader = flights.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.inc();
+            try {
+                return leader.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException ex) {
+                throw new IOException(ex.getCause());
+            }
+        }
+        try {
+            Payload payload = render.call();
+            flight.complete(payload);
+            return payload;
+        } catch (Exception ex) {
+            flight.completeExceptionally(ex);
+            if (ex instanceof IOException) {
+                throw (IOException) ex;
+            }
+            throw new IOException(ex);
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private Payload refresh(String contentType) throws IOException {
+        Payload payload = payloads.get(contentType);
+        if (isFresh(payload)) {
+            return payload;
+        }
+        long version = MetricRegistry.version();
+        if (payload != null && onChange && payload.version == version) {
+            payload = payload.touch();
+        } else {
+            payload = render(contentType, version);
+        }
+        payloads.put(contentType, payload);
+        return payload;
+    }
+
+    private boolean isFresh(Payload payload) {
+        return payload != null && System.currentTimeMillis() - payload.checkedAt < interval;
+    }
+
+    private Payload render(String contentType, long version) throws IOException {
+        long start = System.nanoTime();
+        byte[] text = render(registry, filter, contentType);
+        byte[] compressed = gzip ? compress(text) : null;
+        renderSeconds.set((System.nanoTime() - start) / 1e9);
+        textBytes.set(text.length);
+        if (compressed != null) {
+            gzipBytes.set(compressed.length);
+        }
+        renders.inc();
+        return new Payload(text, compressed, contentType, version);
+    }
+
+    /** Page of the samples accepted by {@code filter}, in text format 0.0.4 or OpenMetrics. */
+    public static byte[] render(
+            CollectorRegistry registry, Predicate<String> filter, String contentType)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            if (TextFormat.CONTENT_TYPE_OPENMETRICS_100.equals(contentType)) {
+                TextFormat.writeOpenMetrics100(
+                        writer, registry.filteredMetricFamilySamples(filter));
+            } else if (registry instanceof MetricRegistry) {
+                ((MetricRegistry) registry).write004(writer, filter);
+            } else {
+                TextFormat.write004(writer, registry.filteredMetricFamilySamples(filter));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] compress(byte[] text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text);
+        }
+        return out.toByteArray();
+    }
+
+    public void close() {
+        MetricRegistry.detach(this);
+    }
+
+    public static class Payload {
+        private final byte[] text;
+        private final byte[] gzip;
+        private final String contentType;
+        private final long version;
+        private volatile long checkedAt;
+        private volatile ByteBuffer textBuffer;
+        private volatile ByteBuffer gzipBuffer;
+
+        private Payload(byte[] text, byte[] gzip, String contentType, long version) {
+            this.text = text;
+            this.gzip = gzip;
+            this.contentType = contentType;
+            this.version = version;
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        private Payload touch() {
+            checkedAt = System.currentTimeMillis();
+            return this;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getText() {
+            return text;
+        }
+
+        /** Pre-compressed text, null unless the cache was built with gzip. */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * Text in a direct buffer copied once, each caller gets its own position over the shared
+         * memory.
+         */
+        public ByteBuffer getTextBuffer() {
+            ByteBuffer buffer = textBuffer;
+            if (buffer == null) {
+                buffer = textBuffer = direct(text);
+            }
+            return buffer.duplicate();
+        }
+
+        /** Like {@link #getTextBuffer()}, null unless the cache was built with gzip. */
+        public ByteBuffer getGzipBuffer() {
+            if (gzip == null) {
+                return null;
+            }
+            ByteBuffer buffer = gzipBuffer;
+            if (buffer == null) {
+                buffer = gzipBuffer = direct(gzip);
+            }
+            return buffer.duplicate();
+        }
+
+        private static ByteBuffer direct(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+}
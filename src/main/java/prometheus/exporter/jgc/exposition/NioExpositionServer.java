@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposition over one selector thread. Connections are kept alive, requests are read into pooled
+ * direct buffers and the cached page is written from the direct buffer of its payload. Pages are
+ * rendered by a fixed number of workers, requests beyond their queue are answered 503, and
+ * connections idle for longer than the timeout are closed.
+ */
+public class NioExpositionServer implements Closeable, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(NioExpositionServer.class);
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final byte[] HEALTHY_RESPONSE =
+            "Exporter is Healthy.".getBytes(StandardCharsets.US_ASCII);
+    private final ExpositionCache cache;
+    private final long timeout;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final Deque<ByteBuffer> pool;
+    private final Queue<Runnable> completions;
+    private final Set<Connection> connections;
+    private final Map<String, Page> pages;
+    private final Thread thread;
+    private volatile boolean running;
+
+    public NioExpositionServer(
+            InetSocketAddress address, ExpositionCache cache, int workers, long timeout)
+            throws IOException {
+        this.cache = cache;
+        this.timeout = timeout;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address, 128);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers =
+                new ThreadPoolExecutor(
+                        workers,
+                        workers,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                        r -> {
+                            Thread t = new Thread(r, "nio-exposition-worker");
+                            t.setDaemon(true);
+                            return t;
+                        });
+        this.pool = new ArrayDeque<>();
+        this.completions = new ConcurrentLinkedQueue<>();
+        this.connections = new HashSet<>();
+        this.pages = new ConcurrentHashMap<>();
+        this.running = true;
+        this.thread = new Thread(this, "nio-exposition");
+        this.thread.start();
+    }
+
+    /** Serve {@code path} with pages rendered on the workers, e.g. the sketches. */
+    public void addPage(String path, String contentType, Callable<byte[]> render) {
+        pages.put(path, new Page(contentType, render));
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(Math.max(1, Math.min(timeout, 1000)));
+                Runnable completion;
+                while ((completion = completions.poll()) != null) {
+                    completion.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        } else if (key.isWritable()) {
+                            connection.write();
+                        }
+                    } catch (IOException ex) {
+                        connection.close();
+                    }
+                }
+                expire();
+            } catch (Exception ex) {
+                LOG.error("exposition error", ex);
+            }
+        }
+        for (Connection connection : new ArrayList<>(connections)) {
+            connection.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connections.add(new Connection(channel));
+        }
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        for (Connection connection : new ArrayList<>(connections)) {
+            if (now - connection.lastActive > timeout) {
+                connection.close();
+            }
+        }
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (pool.size() < MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            pool.push(buffer);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ex) {
+            LOG.warn("close error", ex);
+        }
+    }
+
+    private static class Page {
+        private final String contentType;
+        private final Callable<byte[]> render;
+
+        private Page(String contentType, Callable<byte[]> render) {
+            this.contentType = contentType;
+            this.render = render;
+        }
+    }
+
+    /** State of one connection, only touched by the selector thread. */
+    private class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final Deque<ByteBuffer> out;
+        private ByteBuffer in;
+        private ByteBuffer header;
+        private boolean busy;
+        private boolean closeAfterWrite;
+        private long lastActive;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.key = channel.register(selector, SelectionKey.OP_READ, this);
+            this.out = new ArrayDeque<>(2);
+            this.in = acquire();
+            this.lastActive = System.currentTimeMillis();
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            handle();
+        }
+
+        /** Handle the next complete request in the read buffer, one at a time. */
+        private void handle() {
+            if (busy) {
+                return;
+            }
+            int end = headerEnd();
+            if (end < 0) {
+                if (!in.hasRemaining()) {
+                    respond(431, "text/plain", null, null, false, false);
+                }
+                return;
+            }
+            byte[] bytes = new byte[end];
+            in.flip();
+            in.get(bytes);
+            in.position(in.position() + 4);
+            in.compact();
+            String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; ++i) {
+                int idx = lines[i].indexOf(':');
+                if (idx > 0) {
+                    headers.put(
+                            lines[i].substring(0, idx).trim().toLowerCase(Locale.ROOT),
+                            lines[i].substring(idx + 1).trim());
+                }
+            }
+            if (requestLine.length != 3 || headers.containsKey("content-length")) {
+                respond(400, "text/plain", null, null, false, false);
+                return;
+            }
+            String method = requestLine[0];
+            String connectionHeader = headers.getOrDefault("connection", "");
+            boolean keepAlive =
+                    "HTTP/1.1".equals(requestLine[2])
+                            ? !"close".equalsIgnoreCase(connectionHeader)
+                            : "keep-alive".equalsIgnoreCase(connectionHeader);
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                respond(405, "text/plain", null, null, false, keepAlive);
+                return;
+            }
+            String target = requestLine[1];
+            int idx = target.indexOf('?');
+            String path = idx < 0 ? target : target.substring(0, idx);
+            String query = idx < 0 ? null : target.substring(idx + 1);
+            if ("/-/healthy".equals(path)) {
+                respond(
+                        200,
+                        "text/plain",
+                        null,
+                        ByteBuffer.wrap(HEALTHY_RESPONSE),
+                        head,
+                        keepAlive);
+            } else if ("/".equals(path) || "/metrics".equals(path)) {
+                boolean gzip = acceptsGzip(headers.get("accept-encoding"));
+                String contentType = TextFormat.chooseContentType(headers.get("accept"));
+                offload(
+                        () -> {
+                            ExpositionCache.Payload payload =
+                                    cache.get(contentType, CachedMetricsHandler.parseQuery(query));
+                            ByteBuffer body =
+                                    gzip ? payload.getGzipBuffer() : payload.getTextBuffer();
+                            if (gzip && body == null) {
+                                body = ByteBuffer.wrap(ExpositionCache.compress(payload.getText()));
+                            }
+                            return body;
+                        },
+                        contentType,
+                        gzip,
+                        head,
+                        keepAlive);
+            } else if (pages.containsKey(path)) {
+                Page page = pages.get(path);
+                boolean gzip = acceptsGzip(headers.get("accept-encoding"));
+                offload(
+                        () -> {
+                            byte[] body = page.render.call();
+                            return ByteBuffer.wrap(gzip ? ExpositionCache.compress(body) : body);
+                        },
+                        page.contentType,
+                        gzip,
+                        head,
+                        keepAlive);
+            } else {
+                respond(404, "text/plain", null, null, false, keepAlive);
+            }
+        }
+
+        private void offload(
+                Callable<ByteBuffer> render,
+                String contentType,
+                boolean gzip,
+                boolean head,
+                boolean keepAlive) {
+            busy = true;
+            key.interestOps(0);
+            try {
+                workers.execute(() -> render(render, contentType, gzip, head, keepAlive));
+            } catch (RejectedExecutionException ex) {
+                busy = false;
+                respond(503, "text/plain", null, null, false, keepAlive);
+            }
+        }
+
+        /** Runs on a worker, the response is queued back to the selector thread. */
+        private void render(
+                Callable<ByteBuffer> render,
+                String contentType,
+                boolean gzip,
+                boolean head,
+                boolean keepAlive) {
+            Runnable completion;
+            try {
+                ByteBuffer response = render.call();
+                completion =
+                        () ->
+                                respond(
+                                        200,
+                                        contentType,
+                                        gzip ? "gzip" : null,
+                                        response,
+                                        head,
+                                        keepAlive);
+            } catch (Exception ex) {
+                LOG.error("render error", ex);
+                completion = () -> respond(500, "text/plain", null, null, false, false);
+            }
+            Runnable respond = completion;
+            completions.add(
+                    () -> {
+                        busy = false;
+                        if (channel.isOpen()) {
+                            respond.run();
+                        }
+                    });
+            selector.wakeup();
+        }
+
+        private int headerEnd() {
+            for (int i = 3; i < in.position(); ++i) {
+                if (in.get(i - 3) == '\r'
+                        && in.get(i - 2) == '\n'
+                        && in.get(i - 1) == '\r'
+                        && in.get(i) == '\n') {
+                    return i - 3;
+                }
+            }
+            return -1;
+        }
+
+        private void respond(
+                int status,
+                String contentType,
+                String contentEncoding,
+                ByteBuffer body,
+                boolean head,
+                boolean keepAlive) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("HTTP/1.1 ").append(status).append(' ').append(reason(status));
+            sb.append("\r\nContent-Type: ").append(contentType);
+            if (contentEncoding != null) {
+                sb.append("\r\nContent-Encoding: ").append(contentEncoding);
+            }
+            sb.append("\r\nContent-Length: ").append(body == null ? 0 : body.remaining());
+            sb.append("\r\nConnection: ").append(keepAlive ? "keep-alive" : "close");
+            sb.append("\r\n\r\n");
+            header = acquire();
+            header.put(sb.toString().getBytes(StandardCharsets.US_ASCII)).flip();
+            out.add(header);
+            if (body != null && !head) {
+                out.add(body);
+            }
+            busy = true;
+            closeAfterWrite = !keepAlive;
+            lastActive = System.currentTimeMillis();
+            try {
+                write();
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        void write() throws IOException {
+            channel.write(out.toArray(new ByteBuffer[0]));
+            lastActive = System.currentTimeMillis();
+            while (!out.isEmpty() && !out.peek().hasRemaining()) {
+                if (out.poll() == header) {
+                    release(header);
+                    header = null;
+                }
+            }
+            if (!out.isEmpty()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+            busy = false;
+            key.interestOps(SelectionKey.OP_READ);
+            handle();
+        }
+
+        void close() {
+            if (!connections.remove(this)) {
+                return;
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOG.debug("close error", ex);
+            }
+            if (in != null) {
+                release(in);
+                in = null;
+            }
+            if (header != null) {
+                release(header);
+                header = null;
+            }
+            out.clear();
+        }
+    }
+
+    private static boolean acceptsGzip(String header) {
+        if (header == null) {
+            return false;
+        }
+        for (String encoding : header.split(",")) {
+            if (encoding.trim().equalsIgnoreCase("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Internal Server Error";
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Callable;
+
+/** Serve a page rendered per request, e.g. the sketches, gzipped when the client accepts it. */
+public class PageHandler implements HttpHandler {
+    private final String contentType;
+    private final Callable<byte[]> render;
+
+    public PageHandler(String contentType, Callable<byte[]> render) {
+        this.contentType = contentType;
+        this.render = render;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body;
+            try {
+                body = render.call();
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException(ex);
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if (CachedMetricsHandler.acceptsGzip(exchange)) {
+                body = ExpositionCache.compress(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, head ? -1 : body.length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
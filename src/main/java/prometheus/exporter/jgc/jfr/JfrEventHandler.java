@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.jfr;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedObject;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.metric.HostRollup;
+import prometheus.exporter.jgc.metric.MetricBinding;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/** Record gc events of the finished chunks of one jfr repository. */
+public class JfrEventHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(JfrEventHandler.class);
+    private static final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+    private static final String GC_PHASE_PAUSE = "jdk.GCPhasePause";
+    private static final String GC_PHASE_PAUSE_LEVEL_1 = "jdk.GCPhasePauseLevel1";
+    private static final String GC_HEAP_SUMMARY = "jdk.GCHeapSummary";
+    private static final String G1_GARBAGE_COLLECTION = "jdk.G1GarbageCollection";
+    private static final String G1_HEAP_REGION_INFORMATION = "jdk.G1HeapRegionInformation";
+    private static final String G1_HEAP_REGION_TYPE_CHANGE = "jdk.G1HeapRegionTypeChange";
+    private static final String[] REGION_TYPES = {
+        "eden", "survivor", "old", "humongous", "archive", "free"
+    };
+    private static final Set<String> EVENT_TYPES =
+            new HashSet<>(
+                    Arrays.asList(
+                            GARBAGE_COLLECTION,
+                            GC_PHASE_PAUSE,
+                            GC_PHASE_PAUSE_LEVEL_1,
+                            GC_HEAP_SUMMARY,
+                            G1_HEAP_REGION_INFORMATION,
+                            G1_HEAP_REGION_TYPE_CHANGE));
+    private final String path;
+    private final String host;
+    // region index -> type, only complete once a G1HeapRegionInformation snapshot was seen
+    private final Map<Integer, String> regionTypes;
+    private boolean regionSnapshot;
+    private final MetricBinding metrics;
+    private final HostRollup rollup;
+
+    public JfrEventHandler(File repository) {
+        this.path = repository.getPath();
+        this.host = OperatingSystem.getLocalHostName();
+        this.regionTypes = new HashMap<>();
+        this.metrics = MetricBinding.forPath(this, path, host);
+        this.rollup = new HostRollup();
+    }
+
+    public void consume(File chunk) throws IOException {
+        List<RecordedEvent> events = new ArrayList<>();
+        Map<Long, RecordedEvent> collections = new HashMap<>();
+        Map<Long, String> g1Types = new HashMap<>();
+        try (RecordingFile recording = new RecordingFile(chunk.toPath())) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                if (GARBAGE_COLLECTION.equals(type)) {
+                    collections.put(event.getLong("gcId"), event);
+                } else if (G1_GARBAGE_COLLECTION.equals(type)) {
+                    g1Types.put(event.getLong("gcId"), event.getString("type"));
+                }
+                if (EVENT_TYPES.contains(type)) {
+                    events.add(event);
+                }
+            }
+        }
+        // events of a chunk are grouped by thread buffers, replay them in time order
+        events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+
+        boolean regionChanged = false;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case GARBAGE_COLLECTION:
+                    recordGarbageCollection(event, g1Types.get(event.getLong("gcId")));
+                    break;
+                case GC_PHASE_PAUSE:
+                    long gcId = event.getLong("gcId");
+                    RecordedEvent collection = collections.get(gcId);
+                    String category =
+                            collection == null
+                                    ? "Unknown"
+                                    : category(
+                                            collection.getString("name"),
+                                            collection.getString("cause"),
+                                            g1Types.get(gcId),
+                                            event.getString("name"));
+                    double pause = seconds(event.getDuration().toNanos());
+                    metrics.get(GC_EVENT_PAUSE_DURATION, category).observe(pause);
+                    rollup.pause(category, pause, eventTime(event));
+                    metrics.get(GC_EVENT_LAST_MINUTE_PAUSE_DURATION).observe(pause);
+                    metrics.get(GC_EVENT_WINDOW_PAUSE_DURATION).observe(pause, eventTime(event));
+                    break;
+                case GC_PHASE_PAUSE_LEVEL_1:
+                    metrics.get(JFR_PHASE_PAUSE_DURATION, event.getString("name"))
+                            .observe(seconds(event.getDuration().toNanos()));
+                    break;
+                case GC_HEAP_SUMMARY:
+                    recordHeapSummary(event);
+                    break;
+                case G1_HEAP_REGION_INFORMATION:
+                    regionTypes.put(event.getInt("index"), event.getString("type"));
+                    regionSnapshot = true;
+                    regionChanged = true;
+                    break;
+                case G1_HEAP_REGION_TYPE_CHANGE:
+                    regionTypes.put(event.getInt("index"), event.getString("to"));
+                    regionChanged = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        // type changes alone miss every region that never changed since startup
+        if (regionChanged && regionSnapshot) {
+            recordRegions();
+        }
+        LOG.debug("Consume {} gc events of {}", events.size(), chunk);
+    }
+
+    private void recordGarbageCollection(RecordedEvent event, String g1Type) {
+        String category = category(event.getString("name"), event.getString("cause"), g1Type, null);
+        double duration = seconds(event.getDuration().toNanos());
+        metrics.get(GC_EVENT_DURATION, category).observe(duration);
+        metrics.get(GC_EVENT_LAST_MINUTE_DURATION).observe(duration);
+        metrics.get(GC_EVENT_WINDOW_DURATION).observe(duration, eventTime(event));
+    }
+
+    private void recordHeapSummary(RecordedEvent event) {
+        long used = event.getLong("heapUsed");
+        RecordedObject heapSpace = event.getValue("heapSpace");
+        long committed = heapSpace == null ? -1 : heapSpace.getLong("committedSize");
+        if ("Before GC".equals(event.getString("when"))) {
+            metrics.get(HEAP_OCCUPANCY_BEFORE_COLLECTION).set(used);
+            if (committed >= 0) {
+                metrics.get(HEAP_SIZE_BEFORE_COLLECTION).set(committed);
+            }
+        } else {
+            metrics.get(HEAP_OCCUPANCY_AFTER_COLLECTION).set(used);
+            rollup.heapOccupancy(used);
+            if (committed >= 0) {
+                metrics.get(HEAP_SIZE_AFTER_COLLECTION).set(committed);
+            }
+        }
+    }
+
+    /**
+     * Current region counts, not the after collection counts of the log handlers since snapshots
+     * and type changes are not aligned with collections.
+     */
+    private void recordRegions() {
+        int[] counts = new int[REGION_TYPES.length];
+        for (String type : regionTypes.values()) {
+            if (type.equals("Eden")) {
+                ++counts[0];
+            } else if (type.equals("Survivor")) {
+                ++counts[1];
+            } else if (type.equals("Old")) {
+                ++counts[2];
+            } else if (type.endsWith("Humongous")) {
+                ++counts[3];
+            } else if (type.contains("Archive")) {
+                ++counts[4];
+            } else if (type.equals("Free")) {
+                ++counts[5];
+            }
+        }
+        for (int i = 0; i < REGION_TYPES.length; i++) {
+            metrics.get(JFR_G1_REGIONS, REGION_TYPES[i]).set(counts[i]);
+        }
+    }
+
+    /**
+     * Map the jfr collector name onto the categories of the log handlers, so the same jvm gets the
+     * same category whichever source it is read from.
+     *
+     * @param name collector name of jdk.GarbageCollection
+     * @param cause gc cause of jdk.GarbageCollection
+     * @param g1Type type of jdk.G1GarbageCollection, null if absent
+     * @param phase name of the pause phase, null for the whole collection
+     */
+    static String category(String name, String cause, String g1Type, String phase) {
+        if (name == null) {
+            return "Unknown";
+        }
+        switch (name) {
+            case "G1New":
+                if (g1Type != null && g1Type.contains("Mixed") && !g1Type.startsWith("Prepare")) {
+                    return "G1MixedGC";
+                } else if (g1Type != null
+                        && (g1Type.contains("Concurrent Start")
+                                || g1Type.contains("Initial Mark"))) {
+                    return "G1InitialMark";
+                }
+                return "G1YoungGC";
+            case "G1Old":
+                if (phase == null) {
+                    return "G1ConcurrentMark";
+                } else if (phase.contains("Remark")) {
+                    return "G1Remark";
+                } else if (phase.contains("Cleanup")) {
+                    return "G1Cleanup";
+                }
+                return "G1Unknown";
+            case "G1Full":
+                return "System.gc()".equals(cause) ? "G1SystemGC" : "G1FullGC";
+            case "ParallelScavenge":
+                return "PSYoungGC";
+            case "ParallelOld":
+                return "PSFullGC";
+            case "DefNew":
+                return "DefNew";
+            case "ParNew":
+                return "ParNew";
+            case "SerialOld":
+                return "System.gc()".equals(cause) ? "SystemGC" : "FullGC";
+            case "ConcurrentMarkSweep":
+                if (phase != null && phase.contains("Initial Mark")) {
+                    return "CMSInitialMark";
+                } else if (phase != null && phase.contains("Remark")) {
+                    return "CMSRemark";
+                }
+                return "CMSConcurrentMark";
+            case "Z":
+            case "ZMinor":
+            case "ZMajor":
+                return zCategory(cause);
+            default:
+                return "Unknown";
+        }
+    }
+
+    private static String zCategory(String cause) {
+        if (cause == null) {
+            return "ZGCUnknown";
+        }
+        switch (cause) {
+            case "Timer":
+                return "ZGCTimer";
+            case "Warmup":
+                return "ZGCWarmup";
+            case "Allocation Rate":
+                return "ZGCAllocRate";
+            case "Allocation Stall":
+                return "ZGCAllocStall";
+            case "Proactive":
+                return "ZGCProactive";
+            case "Metadata GC Threshold":
+                return "ZGCMetadataGCThreshold";
+            case "System.gc()":
+                return "ZGCSystemGc";
+            default:
+                return "ZGCUnknown";
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static double eventTime(RecordedEvent event) {
+        return event.getStartTime().toEpochMilli() / 1000.0;
+    }
+
+    public void close() {
+        metrics.close();
+        MetricRegistry.detach(this);
+        rollup.close();
+    }
+}
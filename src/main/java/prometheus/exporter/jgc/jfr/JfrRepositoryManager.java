@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.jfr;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.tailer.GlobTailerSource;
+
+/**
+ * Watch jfr repositories written by continuous recordings, a chunk is consumed once the jvm has
+ * moved on to a newer one, or it has not been modified for idleTimeout.
+ */
+public class JfrRepositoryManager {
+    private static final Logger LOG = LoggerFactory.getLogger(JfrRepositoryManager.class);
+    private final GlobTailerSource source;
+    private final long idleTimeout;
+    private final Map<File, Repository> registry = new HashMap<>();
+    private final ScheduledExecutorService watcher;
+
+    public JfrRepositoryManager(Config config) {
+        this.source = new GlobTailerSource(config.getJfrGlobPattern());
+        this.idleTimeout = config.getIdleTimeout();
+        this.watcher =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("jfr-watcher").build());
+        this.watcher.scheduleWithFixedDelay(
+                this::watch, 0, config.getWatchInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    void watch() {
+        try {
+            Map<File, List<File>> chunks = new HashMap<>();
+            for (File chunk : source.findMatchingFiles()) {
+                chunks.computeIfAbsent(chunk.getParentFile(), k -> new ArrayList<>()).add(chunk);
+            }
+            Iterator<Repository> iterator = registry.values().iterator();
+            while (iterator.hasNext()) {
+                Repository repository = iterator.next();
+                if (!chunks.containsKey(repository.dir)) {
+                    LOG.info("Unregister jfr repository: {}", repository.dir);
+                    repository.handler.close();
+                    iterator.remove();
+                }
+            }
+            for (Map.Entry<File, List<File>> entry : chunks.entrySet()) {
+                List<File> files = entry.getValue();
+                // chunk names start with their creation time
+                files.sort(Comparator.comparing(File::getName));
+                Repository repository = registry.get(entry.getKey());
+                if (repository == null) {
+                    // like tailers seeking to the end, history before startup is skipped
+                    repository = new Repository(entry.getKey());
+                    repository.consumed.addAll(files);
+                    registry.put(entry.getKey(), repository);
+                    LOG.info("Register jfr repository: {}", entry.getKey());
+                    continue;
+                }
+                repository.update(files, idleTimeout);
+            }
+        } catch (Throwable t) {
+            LOG.error("Watch jfr repository failed.", t);
+        }
+    }
+
+    public void close() {
+        watcher.shutdown();
+        try {
+            watcher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ignore) {
+        }
+        registry.values().forEach(repository -> repository.handler.close());
+        registry.clear();
+    }
+
+    private static class Repository {
+        private final File dir;
+        private final JfrEventHandler handler;
+        private final Set<File> consumed;
+
+        private Repository(File dir) {
+            this.dir = dir;
+            this.handler = new JfrEventHandler(dir);
+            this.consumed = new HashSet<>();
+        }
+
+        private void update(List<File> files, long idleTimeout) {
+            consumed.retainAll(files);
+            File current = files.get(files.size() - 1);
+            for (File chunk : files) {
+                if (consumed.contains(chunk)) {
+                    continue;
+                }
+                boolean finished =
+                        chunk != current
+                                || System.currentTimeMillis() - chunk.lastModified() > idleTimeout;
+                if (!finished) {
+                    continue;
+                }
+                try {
+                    handler.consume(chunk);
+                } catch (Exception ex) {
+                    LOG.warn("Ignore invalid jfr chunk: {}", chunk, ex);
+                }
+                consumed.add(chunk);
+            }
+        }
+    }
+}
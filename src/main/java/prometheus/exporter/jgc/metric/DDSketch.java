@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import java.util.Arrays;
+
+/**
+ * DDSketch of positive values: a value is counted in the bucket of index {@code ceil(log_gamma(v))}
+ * with {@code gamma = (1 + a) / (1 - a)}, so every quantile is within relative error {@code a} of
+ * an observed value. Sketches of the same accuracy merge exactly by adding their buckets. Buckets
+ * are dense between the lowest and highest index, beyond {@link #MAX_BUCKETS} the lowest ones are
+ * collapsed, which only costs accuracy of the lowest quantiles.
+ */
+public class DDSketch {
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    public static final int MAX_BUCKETS = 2048;
+    private static final long[] EMPTY = new long[0];
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final double minIndexable;
+    private long[] counts = EMPTY;
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public DDSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.minIndexable = Double.MIN_NORMAL * gamma;
+    }
+
+    /** Values below the smallest indexable one, zero and negatives included, count as zero. */
+    public synchronized void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < minIndexable) {
+            ++zeroCount;
+        } else {
+            increment(index(value), 1);
+        }
+        ++count;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /** Add the values of {@code other}, it must have the same accuracy. */
+    public void merge(DDSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException(
+                    "relativeAccuracy: " + other.relativeAccuracy + " != " + relativeAccuracy);
+        }
+        DDSketch copy = other.copy();
+        synchronized (this) {
+            for (int i = 0; i < copy.counts.length; ++i) {
+                if (copy.counts[i] != 0) {
+                    increment(copy.offset + i, copy.counts[i]);
+                }
+            }
+            zeroCount += copy.zeroCount;
+            count += copy.count;
+            sum += copy.sum;
+            min = Math.min(min, copy.min);
+            max = Math.max(max, copy.max);
+        }
+    }
+
+    /** Value of rank {@code q * (count - 1)}, NaN when empty. */
+    public synchronized double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        double rank = q * (count - 1);
+        long seen = zeroCount;
+        if (rank < seen) {
+            return Math.max(min, 0);
+        }
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (rank < seen) {
+                double value = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    public synchronized DDSketch copy() {
+        DDSketch copy = new DDSketch(relativeAccuracy);
+        copy.counts = counts.clone();
+        copy.offset = offset;
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    /** Sketch of encoded fields, {@code counts[i]} is the count of index {@code offset + i}. */
+    public static DDSketch of(
+            double relativeAccuracy,
+            int offset,
+            long[] counts,
+            long zeroCount,
+            double sum,
+            double min,
+            double max) {
+        DDSketch sketch = new DDSketch(relativeAccuracy);
+        for (int i = 0; i < counts.length; ++i) {
+            if (counts[i] != 0) {
+                sketch.increment(offset + i, counts[i]);
+                sketch.count += counts[i];
+            }
+        }
+        sketch.zeroCount = zeroCount;
+        sketch.count += zeroCount;
+        sketch.sum = sum;
+        sketch.min = sketch.count == 0 ? Double.POSITIVE_INFINITY : min;
+        sketch.max = sketch.count == 0 ? Double.NEGATIVE_INFINITY : max;
+        return sketch;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private void increment(int index, long n) {
+        if (counts.length == 0) {
+            counts = new long[1];
+            offset = index;
+        } else if (index < offset || index >= offset + counts.length) {
+            int low = Math.min(offset, index);
+            int high = Math.max(offset + counts.length - 1, index);
+            if (high - low + 1 > MAX_BUCKETS) {
+                low = high - MAX_BUCKETS + 1;
+            }
+            long[] grown = new long[high - low + 1];
+            for (int i = 0; i < counts.length; ++i) {
+                grown[Math.max(0, offset + i - low)] += counts[i];
+            }
+            counts = grown;
+            offset = low;
+        }
+        counts[Math.max(0, index - offset)] += n;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public synchronized int getOffset() {
+        return offset;
+    }
+
+    public synchronized long[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    public synchronized long getZeroCount() {
+        return zeroCount;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    public synchronized double getMin() {
+        return min;
+    }
+
+    public synchronized double getMax() {
+        return max;
+    }
+}
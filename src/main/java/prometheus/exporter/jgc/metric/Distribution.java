@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.Predicate;
+import io.prometheus.client.SimpleCollector;
+import io.prometheus.client.Summary;
+import io.prometheus.client.exemplars.Exemplar;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of observed values, exported either as a {@link Summary}, as a histogram or as a
+ * summary of {@link DDSketch} quantiles. The mode is chosen per family name when the collector is
+ * created, see {@link #configure} and {@link #configureSketches}. Histogram buckets are striped
+ * {@link LongAdder}s, so observing never blocks. Neither histograms nor sketches decay, a family
+ * with {@link Builder#maxAgeSeconds} always stays a summary. A family built with {@link
+ * Builder#histogram} is a histogram whatever is configured.
+ */
+public class Distribution extends SimpleCollector<Distribution.Child> {
+    /** 1-2-5 log-linear buckets from 100us to 100s. */
+    public static final double[] DEFAULT_BUCKETS = logLinearBuckets(0.0001, 6);
+
+    private static volatile Set<String> histogramFamilies = Collections.emptySet();
+    private static volatile Map<String, double[]> familyBuckets = Collections.emptyMap();
+    private static volatile Set<String> sketchFamilies = Collections.emptySet();
+    private static volatile double sketchAccuracy = DDSketch.DEFAULT_RELATIVE_ACCURACY;
+
+    /** Quantiles of a sketch whose builder sets none. */
+    private static final double[] DEFAULT_SKETCH_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Summary summary;
+    private final double[] upperBounds;
+    private final double relativeAccuracy;
+    private final double[] quantiles;
+
+    private Distribution(Builder b) {
+        super(b);
+        if (b.decaying) {
+            this.summary = b.summary.create();
+            this.upperBounds = null;
+            this.relativeAccuracy = 0;
+            this.quantiles = null;
+        } else if (b.histogram
+                || histogramFamilies.contains(fullname)
+                || histogramFamilies.contains("*")) {
+            this.summary = null;
+            double[] buckets = familyBuckets.getOrDefault(fullname, DEFAULT_BUCKETS);
+            this.upperBounds = Arrays.copyOf(buckets, buckets.length + 1);
+            this.upperBounds[buckets.length] = Double.POSITIVE_INFINITY;
+            this.relativeAccuracy = 0;
+            this.quantiles = null;
+        } else if (sketchFamilies.contains(fullname) || sketchFamilies.contains("*")) {
+            this.summary = null;
+            this.upperBounds = null;
+            this.relativeAccuracy = sketchAccuracy;
+            this.quantiles =
+                    b.quantiles.isEmpty()
+                            ? DEFAULT_SKETCH_QUANTILES
+                            : b.quantiles.stream().mapToDouble(Double::doubleValue).toArray();
+        } else {
+            this.summary = b.summary.create();
+            this.upperBounds = null;
+            this.relativeAccuracy = 0;
+            this.quantiles = null;
+        }
+    }
+
+    /**
+     * Select the families exported as histograms, "*" selects all of them, and their buckets.
+     * Collectors created before are not changed.
+     */
+    public static void configure(Collection<String> families, Map<String, List<Double>> buckets) {
+        histogramFamilies = families == null ? Collections.emptySet() : new HashSet<>(families);
+        Map<String, double[]> bounds = new HashMap<>();
+        if (buckets != null) {
+            for (Map.Entry<String, List<Double>> entry : buckets.entrySet()) {
+                double[] values =
+                        entry.getValue().stream().mapToDouble(Double::doubleValue).toArray();
+                Arrays.sort(values);
+                bounds.put(entry.getKey(), values);
+            }
+        }
+        familyBuckets = bounds;
+    }
+
+    /**
+     * Select the families backed by mergeable sketches, "*" selects all of them, a family selected
+     * as histogram stays one. Collectors created before are not changed.
+     */
+    public static void configureSketches(Collection<String> families, double relativeAccuracy) {
+        sketchFamilies = families == null ? Collections.emptySet() : new HashSet<>(families);
+        sketchAccuracy = relativeAccuracy;
+    }
+
+    /** Bounds 1, 2 and 5 times each power of ten, starting at {@code start}. */
+    public static double[] logLinearBuckets(double start, int decades) {
+        int[] steps = {1, 2, 5};
+        double[] buckets = new double[decades * steps.length + 1];
+        BigDecimal base = BigDecimal.valueOf(start);
+        for (int i = 0; i < decades; ++i) {
+            for (int j = 0; j < steps.length; ++j) {
+                buckets[i * steps.length + j] =
+                        base.multiply(BigDecimal.valueOf(steps[j]))
+                                .scaleByPowerOfTen(i)
+                                .doubleValue();
+            }
+        }
+        buckets[buckets.length - 1] = base.scaleByPowerOfTen(decades).doubleValue();
+        return buckets;
+    }
+
+    public boolean isHistogram() {
+        return upperBounds != null;
+    }
+
+    public boolean isSketch() {
+        return relativeAccuracy > 0;
+    }
+
+    public String getName() {
+        return fullname;
+    }
+
+    public List<String> getLabelNames() {
+        return Collections.unmodifiableList(labelNames);
+    }
+
+    /** Copies of the sketches by label values, empty unless the family is backed by sketches. */
+    public Map<List<String>, DDSketch> sketches() {
+        Map<List<String>, DDSketch> sketches = new LinkedHashMap<>();
+        if (isSketch()) {
+            for (Map.Entry<List<String>, Child> entry : children.entrySet()) {
+                sketches.put(entry.getKey(), entry.getValue().sketch.copy());
+            }
+        }
+        return sketches;
+    }
+
+    @Override
+    public Child labels(String... labelValues) {
+        if (summary == null) {
+            return super.labels(labelValues);
+        }
+        List<String> key = Arrays.asList(labelValues);
+        Child child = children.get(key);
+        if (child == null) {
+            child = new Child(summary.labels(labelValues), null, null);
+            Child prev = children.putIfAbsent(key, child);
+            child = prev == null ? child : prev;
+        }
+        return child;
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child(null, upperBounds, isSketch() ? new DDSketch(relativeAccuracy) : null);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        return collect(null);
+    }
+
+    /** Histogram series of a suffix rejected by {@code filter} are not built. */
+    @Override
+    public List<MetricFamilySamples> collect(Predicate<String> filter) {
+        if (summary != null) {
+            return summary.collect(filter);
+        }
+        if (isSketch()) {
+            return collectSketches(filter);
+        }
+        boolean buckets = filter == null || filter.test(fullname + "_bucket");
+        boolean count = filter == null || filter.test(fullname + "_count");
+        boolean sum = filter == null || filter.test(fullname + "_sum");
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        for (Map.Entry<List<String>, Child> entry : children.entrySet()) {
+            List<String> labelValues = entry.getKey();
+            Child child = entry.getValue();
+            long total = 0;
+            if (buckets) {
+                List<String> bucketNames = new ArrayList<>(labelNames);
+                bucketNames.add("le");
+                for (int i = 0; i < upperBounds.length; ++i) {
+                    total += child.buckets[i].sum();
+                    List<String> bucketValues = new ArrayList<>(labelValues);
+                    bucketValues.add(doubleToGoString(upperBounds[i]));
+                    samples.add(
+                            new MetricFamilySamples.Sample(
+                                    fullname + "_bucket",
+                                    bucketNames,
+                                    bucketValues,
+                                    total,
+                                    child.exemplars.get(i)));
+                }
+            } else if (count) {
+                for (LongAdder bucket : child.buckets) {
+                    total += bucket.sum();
+                }
+            }
+            if (count) {
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_count", labelNames, labelValues, total));
+            }
+            if (sum) {
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_sum", labelNames, labelValues, child.sum.sum()));
+            }
+        }
+        return familySamplesList(Type.HISTOGRAM, samples);
+    }
+
+    private List<MetricFamilySamples> collectSketches(Predicate<String> filter) {
+        boolean values = filter == null || filter.test(fullname);
+        boolean count = filter == null || filter.test(fullname + "_count");
+        boolean sum = filter == null || filter.test(fullname + "_sum");
+        List<String> quantileNames = new ArrayList<>(labelNames);
+        quantileNames.add("quantile");
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        for (Map.Entry<List<String>, Child> entry : children.entrySet()) {
+            List<String> labelValues = entry.getKey();
+            DDSketch sketch = entry.getValue().sketch.copy();
+            if (values) {
+                for (double quantile : quantiles) {
+                    List<String> quantileValues = new ArrayList<>(labelValues);
+                    quantileValues.add(doubleToGoString(quantile));
+                    samples.add(
+                            new MetricFamilySamples.Sample(
+                                    fullname,
+                                    quantileNames,
+                                    quantileValues,
+                                    sketch.quantile(quantile)));
+                }
+            }
+            if (count) {
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_count", labelNames, labelValues, sketch.getCount()));
+            }
+            if (sum) {
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_sum", labelNames, labelValues, sketch.getSum()));
+            }
+        }
+        return familySamplesList(Type.SUMMARY, samples);
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    public static class Child {
+        /** Child of a disabled family, observing does nothing. */
+        public static final Child NOOP = new Child(null, null, null);
+
+        private final Summary.Child summary;
+        private final double[] upperBounds;
+        private final LongAdder[] buckets;
+        private final AtomicReferenceArray<Exemplar> exemplars;
+        private final DoubleAdder sum;
+        private final DDSketch sketch;
+
+        private Child(Summary.Child summary, double[] upperBounds, DDSketch sketch) {
+            this.summary = summary;
+            this.upperBounds = upperBounds;
+            this.sketch = sketch;
+            if (upperBounds != null) {
+                this.buckets = new LongAdder[upperBounds.length];
+                for (int i = 0; i < buckets.length; ++i) {
+                    buckets[i] = new LongAdder();
+                }
+                this.exemplars = new AtomicReferenceArray<>(upperBounds.length);
+                this.sum = new DoubleAdder();
+            } else {
+                this.buckets = null;
+                this.exemplars = null;
+                this.sum = null;
+            }
+        }
+
+        public void observe(double amt) {
+            observe(amt, null);
+        }
+
+        /**
+         * Observe with an exemplar, the latest one of each bucket is exported in OpenMetrics.
+         * Summaries cannot carry exemplars, so it is dropped in summary and sketch mode.
+         */
+        public void observe(double amt, Exemplar exemplar) {
+            if (summary != null) {
+                summary.observe(amt);
+                return;
+            }
+            if (sketch != null) {
+                sketch.add(amt);
+                return;
+            }
+            if (upperBounds == null) {
+                return;
+            }
+            int i = Arrays.binarySearch(upperBounds, amt);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            i = Math.min(i, buckets.length - 1);
+            buckets[i].increment();
+            sum.add(amt);
+            if (exemplar != null) {
+                exemplars.set(i, exemplar);
+            }
+        }
+    }
+
+    /**
+     * Accepts the {@link Summary.Builder} options, they only apply in summary mode, except the
+     * quantiles which a sketch exports as well.
+     */
+    public static class Builder extends SimpleCollector.Builder<Builder, Distribution> {
+        private final Summary.Builder summary = Summary.build();
+        private final List<Double> quantiles = new ArrayList<>();
+        private boolean decaying;
+        private boolean histogram;
+
+        @Override
+        public Builder name(String name) {
+            summary.name(name);
+            return super.name(name);
+        }
+
+        @Override
+        public Builder help(String help) {
+            summary.help(help);
+            return super.help(help);
+        }
+
+        @Override
+        public Builder labelNames(String... labelNames) {
+            summary.labelNames(labelNames);
+            return super.labelNames(labelNames);
+        }
+
+        public Builder quantile(double quantile, double error) {
+            summary.quantile(quantile, error);
+            quantiles.add(quantile);
+            return this;
+        }
+
+        public Builder maxAgeSeconds(long maxAgeSeconds) {
+            summary.maxAgeSeconds(maxAgeSeconds);
+            decaying = true;
+            return this;
+        }
+
+        /** Export as a histogram by default, buckets may still be set per family. */
+        public Builder histogram() {
+            histogram = true;
+            return this;
+        }
+
+        public Builder ageBuckets(int ageBuckets) {
+            summary.ageBuckets(ageBuckets);
+            return this;
+        }
+
+        @Override
+        public Distribution create() {
+            return new Distribution(this);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Contribution of one log to the host level families, they are updated along with the families of
+ * the log, so no query has to sum or max over all paths. Sums of gauges are kept by adding the
+ * change of each log, which is taken back when the log is closed. Does nothing unless enabled.
+ */
+public class HostRollup {
+    private static volatile Children children;
+    private double heapOccupancy;
+    private boolean closed;
+
+    /** Applies to updates afterwards, so it is set before any handler starts. */
+    public static void configure(boolean enabled) {
+        if (children != null) {
+            MetricRegistry.detach(HostRollup.class);
+        }
+        children = enabled ? new Children(OperatingSystem.getLocalHostName()) : null;
+    }
+
+    /**
+     * Time is seconds since the epoch of the event. The window is shared by all jvms of the host,
+     * so it is never an uptime, which would look like a restarted clock to the window.
+     */
+    public void pause(String category, double seconds, double time) {
+        Children children = HostRollup.children;
+        if (children == null) {
+            return;
+        }
+        children.pauseSeconds.inc(seconds);
+        HOST_PAUSES.attach(HostRollup.class, children.host, category).inc();
+        children.windowPause.observe(seconds, time);
+    }
+
+    public synchronized void heapOccupancy(double bytes) {
+        Children children = HostRollup.children;
+        if (children == null || closed) {
+            return;
+        }
+        children.heapOccupancy.inc(bytes - heapOccupancy);
+        heapOccupancy = bytes;
+    }
+
+    /** Take back the gauges of the log. */
+    public synchronized void close() {
+        Children children = HostRollup.children;
+        if (children != null) {
+            children.heapOccupancy.dec(heapOccupancy);
+        }
+        heapOccupancy = 0;
+        closed = true;
+    }
+
+    private static class Children {
+        private final String host;
+        private final Counter.Child pauseSeconds;
+        private final SlidingWindow.Child windowPause;
+        private final Gauge.Child heapOccupancy;
+
+        private Children(String host) {
+            this.host = host;
+            this.pauseSeconds = HOST_PAUSE_SECONDS.attach(HostRollup.class, host);
+            this.windowPause = HOST_WINDOW_PAUSE_DURATION.attach(HostRollup.class, host);
+            this.heapOccupancy =
+                    HOST_HEAP_OCCUPANCY_AFTER_COLLECTION.attach(HostRollup.class, host);
+        }
+    }
+}
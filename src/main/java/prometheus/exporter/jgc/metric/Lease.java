@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping of a target bound through {@link MetricBinding}: when its metrics were last updated
+ * and how many series it holds. An evicted lease tells the binding to resolve its children again.
+ */
+class Lease {
+    final Object target;
+    final AtomicInteger series = new AtomicInteger();
+    volatile long updatedAt = System.currentTimeMillis();
+    volatile boolean evicted;
+
+    Lease(Object target) {
+        this.target = target;
+    }
+}
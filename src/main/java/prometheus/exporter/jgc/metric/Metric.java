@@ -16,59 +16,290 @@
 package prometheus.exporter.jgc.metric;
 
 import io.prometheus.client.Collector;
+import io.prometheus.client.Predicate;
 import io.prometheus.client.SimpleCollector;
 import io.prometheus.client.Supplier;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class Metric<C, T extends SimpleCollector<C>> extends Collector {
+public class Metric<C, T extends SimpleCollector<C>> extends Collector
+        implements Collector.Describable {
+    private static final AtomicInteger COUNT = new AtomicInteger();
     private final Supplier<T> supplier;
     private final Map<Object, T> targets;
+    private final int index;
+    private volatile MetricFamilySamples family;
+    private volatile boolean enabled = true;
+    private volatile C sink;
 
     private Metric(Supplier<T> supplier) {
         this.supplier = Objects.requireNonNull(supplier);
         this.targets = new ConcurrentHashMap<>();
+        this.index = COUNT.getAndIncrement();
     }
 
+    int index() {
+        return index;
+    }
+
+    static int count() {
+        return COUNT.get();
+    }
+
+    /**
+     * Child of {@code target} with the label values. A disabled metric hands out one shared child
+     * that is never exported, callers resolve it once and update it without further checks.
+     */
     public C attach(Object target, String... labels) {
+        if (!enabled) {
+            return sink(labels);
+        }
+        MetricRegistry.markChanged();
         return targets.computeIfAbsent(Objects.requireNonNull(target), key -> supplier.get())
                 .labels(labels);
     }
 
+    /** Shared child that is never exported, for disabled metrics and closed targets. */
+    @SuppressWarnings("unchecked")
+    C sink(String... labels) {
+        C sink = this.sink;
+        if (sink == null) {
+            T collector = supplier.get();
+            sink =
+                    collector instanceof Distribution
+                            ? (C) Distribution.Child.NOOP
+                            : collector.labels(labels);
+            this.sink = sink;
+        }
+        return sink;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Only applies to children attached afterwards, so it is set before any handler starts. */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Names of the family, e.g. the counter name with and without {@code _total}. */
+    String[] names() {
+        MetricFamilySamples family = family();
+        return family == null ? new String[0] : family.getNames();
+    }
+
+    /** Collectors of the attached targets. */
+    Collection<T> targets() {
+        return targets.values();
+    }
+
     public T detach(Object target) {
         return targets.remove(target);
     }
 
+    /**
+     * Family without samples, the registry learns the names from it, so filtered scrapes skip this
+     * metric unless one of its names is requested.
+     */
     @Override
-    public List<MetricFamilySamples> collect() {
+    public List<MetricFamilySamples> describe() {
+        MetricFamilySamples family = family();
+        return family == null ? Collections.emptyList() : Collections.singletonList(family);
+    }
 
-        final Optional<MetricFamilySamples> mfsOpt =
-                targets.values().stream()
-                        .map(SimpleCollector::collect)
-                        .filter(mfs -> !mfs.isEmpty())
-                        .map(mfs -> mfs.get(0))
-                        .findAny();
+    private MetricFamilySamples family() {
+        MetricFamilySamples family = this.family;
+        if (family == null) {
+            List<MetricFamilySamples> families = supplier.get().collect();
+            if (families.isEmpty()) {
+                return null;
+            }
+            MetricFamilySamples m = families.get(0);
+            family = new MetricFamilySamples(m.name, m.unit, m.type, m.help, new ArrayList<>());
+            this.family = family;
+        }
+        return family;
+    }
 
-        if (mfsOpt.isEmpty()) {
-            return Collections.emptyList();
+    private boolean accepts(Predicate<String> filter) {
+        if (filter == null) {
+            return true;
+        }
+        MetricFamilySamples family = family();
+        if (family == null) {
+            return true;
+        }
+        for (String name : family.getNames()) {
+            if (filter.test(name)) {
+                return true;
+            }
         }
+        return false;
+    }
 
+    @Override
+    public List<MetricFamilySamples> collect() {
+        return collect(null);
+    }
+
+    /**
+     * Samples of all targets accepted by {@code filter} in one family, each target is collected
+     * once and not at all when none of the family names is accepted.
+     */
+    @Override
+    public List<MetricFamilySamples> collect(Predicate<String> filter) {
+        if (!accepts(filter)) {
+            return Collections.emptyList();
+        }
+        MetricFamilySamples template = null;
         List<MetricFamilySamples.Sample> samples = new ArrayList<>();
         for (T target : targets.values()) {
-            for (MetricFamilySamples m : target.collect()) {
-                samples.addAll(m.samples);
+            for (MetricFamilySamples m : target.collect(filter)) {
+                if (template == null) {
+                    template = m;
+                }
+                for (MetricFamilySamples.Sample sample : m.samples) {
+                    if (filter == null || filter.test(sample.name)) {
+                        samples.add(sample);
+                    }
+                }
             }
         }
-
-        MetricFamilySamples mfs = copyOf(mfsOpt.get(), samples);
+        if (template == null) {
+            return Collections.emptyList();
+        }
+        if (PathLabels.isFolding()) {
+            samples = fold(samples, template.type);
+        }
         List<MetricFamilySamples> mfsList = new ArrayList<>(1);
-        mfsList.add(mfs);
+        mfsList.add(
+                new MetricFamilySamples(
+                        template.name, template.unit, template.type, template.help, samples));
         return mfsList;
     }
 
-    private MetricFamilySamples copyOf(
-            MetricFamilySamples mfs, List<MetricFamilySamples.Sample> samples) {
-        return new MetricFamilySamples(mfs.name, mfs.unit, mfs.type, mfs.help, samples);
+    /**
+     * Merge the samples of targets sharing label values after {@link PathLabels} gave their paths
+     * the same values, folded into {@code other} or by rules dropping what tells them apart.
+     * Counters, histograms and the count and sum of summaries are summed, creation times keep the
+     * earliest. Quantile 0 and 1 of summaries, e.g. window min and max, keep the min and max, other
+     * quantiles cannot be merged and are dropped. So are merged gauges, a sum of ratios or lags
+     * means nothing.
+     */
+    static List<MetricFamilySamples.Sample> fold(
+            List<MetricFamilySamples.Sample> samples, Type type) {
+        Map<List<Object>, MetricFamilySamples.Sample> folded = new LinkedHashMap<>();
+        Set<List<Object>> dropped = new HashSet<>();
+        for (MetricFamilySamples.Sample sample : samples) {
+            List<Object> key = Arrays.asList(sample.name, sample.labelValues);
+            MetricFamilySamples.Sample first = folded.putIfAbsent(key, sample);
+            if (first == null) {
+                continue;
+            }
+            Double value = merge(type, first, sample);
+            if (value == null) {
+                dropped.add(key);
+                continue;
+            }
+            folded.put(
+                    key,
+                    new MetricFamilySamples.Sample(
+                            first.name,
+                            first.labelNames,
+                            first.labelValues,
+                            value,
+                            first.exemplar,
+                            first.timestampMs));
+        }
+        if (samples.size() == folded.size()) {
+            return samples;
+        }
+        folded.keySet().removeAll(dropped);
+        return new ArrayList<>(folded.values());
+    }
+
+    /** Value of two samples of the same series, null when they cannot be merged. */
+    private static Double merge(
+            Type type, MetricFamilySamples.Sample first, MetricFamilySamples.Sample second) {
+        if (first.name.endsWith("_created")) {
+            return Math.min(first.value, second.value);
+        }
+        switch (type) {
+            case COUNTER:
+            case HISTOGRAM:
+                return first.value + second.value;
+            case SUMMARY:
+                int index = first.labelNames.indexOf("quantile");
+                if (index < 0) {
+                    return first.value + second.value;
+                }
+                double quantile = Double.parseDouble(first.labelValues.get(index));
+                if (quantile == 0) {
+                    // an empty window has NaN bounds
+                    return Double.isNaN(first.value)
+                            ? second.value
+                            : Double.isNaN(second.value)
+                                    ? first.value
+                                    : Math.min(first.value, second.value);
+                } else if (quantile == 1) {
+                    return Double.isNaN(first.value)
+                            ? second.value
+                            : Double.isNaN(second.value)
+                                    ? first.value
+                                    : Math.max(first.value, second.value);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Write the samples accepted by {@code filter} straight from each target, without merging them
+     * into one family first. The header is written before the first accepted sample.
+     */
+    void write(TextWriter writer, Predicate<String> filter) throws IOException {
+        if (!accepts(filter)) {
+            return;
+        }
+        if (PathLabels.isFolding()) {
+            // targets may share label values, so their samples are merged first
+            for (MetricFamilySamples m : collect(filter)) {
+                boolean header = false;
+                for (MetricFamilySamples.Sample sample : m.samples) {
+                    if (writer.deferred(m, sample)) {
+                        continue;
+                    }
+                    if (!header) {
+                        writer.header(m.name, m.type, m.help);
+                        header = true;
+                    }
+                    writer.sample(sample);
+                }
+            }
+            return;
+        }
+        boolean header = false;
+        for (T target : targets.values()) {
+            for (MetricFamilySamples m : target.collect(filter)) {
+                for (MetricFamilySamples.Sample sample : m.samples) {
+                    if (filter != null && !filter.test(sample.name)) {
+                        continue;
+                    }
+                    if (writer.deferred(m, sample)) {
+                        continue;
+                    }
+                    if (!header) {
+                        writer.header(m.name, m.type, m.help);
+                        header = true;
+                    }
+                    writer.sample(sample);
+                }
+            }
+        }
     }
 
     public static <C, T extends SimpleCollector<C>> Metric<C, T> of(Supplier<T> supplier) {
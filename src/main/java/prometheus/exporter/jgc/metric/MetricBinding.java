@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Children of the metrics attached to one target, each child is resolved through {@link
+ * Metric#attach} on first use and then read from an array slot, so recording is allocation-free.
+ * Every lookup marks the registry changed and renews the lease of the target, as it precedes an
+ * update. Once the target was evicted, the children are resolved again. Resolving is idempotent, a
+ * racing thread at worst resolves the same child twice. After {@link #close()} lookups return
+ * children that are never exported, a late update cannot bring the series of the target back.
+ */
+public class MetricBinding {
+    private final Object target;
+    private final String[] labels;
+    private Object[] children;
+    private Map<?, ?>[] labeledChildren;
+    private volatile Lease lease;
+    private volatile boolean closed;
+    private volatile Runnable onRenew;
+    private volatile int generation;
+    private String path;
+
+    /** Labels are the leading label values shared by all metrics, e.g. path and host. */
+    public MetricBinding(Object target, String... labels) {
+        this.target = target;
+        this.labels = labels;
+        this.lease = MetricRegistry.lease(target);
+        clear();
+    }
+
+    /**
+     * Binding of the series of the log at {@code path}, labels are the path labels followed by
+     * {@code rest}. The path labels are held until {@link #close()}.
+     */
+    public static MetricBinding forPath(Object target, String path, String... rest) {
+        String[] labels = new String[rest.length + 1];
+        labels[0] = path;
+        System.arraycopy(rest, 0, labels, 1, rest.length);
+        MetricBinding binding = new MetricBinding(target, PathLabels.acquire(labels));
+        binding.path = path;
+        return binding;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <C> C get(Metric<C, ?> metric) {
+        if (closed) {
+            return metric.sink(labels);
+        }
+        Lease lease = renew();
+        Object[] children = this.children;
+        int index = metric.index();
+        Object child = index < children.length ? children[index] : null;
+        if (child == null) {
+            child = metric.attach(target, labels);
+            slots(index)[index] = child;
+            lease.series.incrementAndGet();
+        }
+        MetricRegistry.markChanged();
+        return (C) child;
+    }
+
+    /** Child with one more label value after the shared ones, e.g. a category. */
+    public <C> C get(Metric<C, ?> metric, String label) {
+        return get(metric, label, label, null);
+    }
+
+    /** Child with more label values after the shared ones, e.g. a pid and a main class. */
+    public <C> C get(Metric<C, ?> metric, String label, String... more) {
+        String key = more.length == 0 ? label : label + '\0' + String.join("\0", more);
+        return get(metric, key, label, more);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C> C get(Metric<C, ?> metric, String key, String label, String[] more) {
+        if (closed) {
+            return metric.sink(values(label, more));
+        }
+        Lease lease = renew();
+        Map<?, ?>[] labeledChildren = this.labeledChildren;
+        int index = metric.index();
+        Map<?, ?> children = index < labeledChildren.length ? labeledChildren[index] : null;
+        Object child = children == null ? null : children.get(key);
+        if (child == null) {
+            child = metric.attach(target, values(label, more));
+            synchronized (this) {
+                Map<?, ?>[] slots = labeledSlots(index);
+                Map<Object, Object> copy =
+                        slots[index] == null ? new HashMap<>() : new HashMap<>(slots[index]);
+                copy.put(key, child);
+                slots[index] = copy;
+            }
+            lease.series.incrementAndGet();
+        }
+        MetricRegistry.markChanged();
+        return (C) child;
+    }
+
+    private String[] values(String label, String[] more) {
+        int length = more == null ? 0 : more.length;
+        String[] values = Arrays.copyOf(labels, labels.length + 1 + length);
+        values[labels.length] = label;
+        if (length > 0) {
+            System.arraycopy(more, 0, values, labels.length + 1, length);
+        }
+        return values;
+    }
+
+    /** Drop the series of {@code metric}, e.g. before setting a new set of info labels. */
+    public synchronized void remove(Metric<?, ?> metric) {
+        int index = metric.index();
+        int removed = 0;
+        if (index < children.length && children[index] != null) {
+            children[index] = null;
+            ++removed;
+        }
+        if (index < labeledChildren.length && labeledChildren[index] != null) {
+            removed += labeledChildren[index].size();
+            labeledChildren[index] = null;
+        }
+        metric.detach(target);
+        lease.series.addAndGet(-removed);
+        MetricRegistry.markChanged();
+    }
+
+    /**
+     * Run {@code callback} once the evicted target is leased again, e.g. to restore series only set
+     * when the target starts.
+     */
+    public void onRenew(Runnable callback) {
+        this.onRenew = callback;
+    }
+
+    /** Renew the lease without an update, true when the target had been evicted. */
+    public boolean touch() {
+        boolean evicted = lease.evicted;
+        if (!closed) {
+            renew();
+        }
+        return evicted;
+    }
+
+    private Lease renew() {
+        Lease lease = this.lease;
+        if (lease.evicted) {
+            boolean renewed = false;
+            synchronized (this) {
+                lease = this.lease;
+                if (lease.evicted) {
+                    clear();
+                    lease = MetricRegistry.lease(target);
+                    this.lease = lease;
+                    renewed = true;
+                }
+            }
+            Runnable onRenew = this.onRenew;
+            if (renewed && onRenew != null) {
+                onRenew.run();
+            }
+        }
+        lease.updatedAt = System.currentTimeMillis();
+        return lease;
+    }
+
+    /**
+     * Moves each time the resolved children are forgotten, a child kept outside the binding is
+     * stale once it moved.
+     */
+    public int generation() {
+        return generation;
+    }
+
+    /** Forget resolved children, they are stale once the target is detached. */
+    public synchronized void clear() {
+        ++generation;
+        this.children = new Object[Metric.count()];
+        this.labeledChildren = new Map<?, ?>[Metric.count()];
+    }
+
+    /** Stop resolving children, called before the target is detached for good. */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        clear();
+        if (path != null) {
+            PathLabels.release(path);
+        }
+    }
+
+    private synchronized Object[] slots(int index) {
+        if (index >= children.length) {
+            children = Arrays.copyOf(children, Metric.count());
+        }
+        return children;
+    }
+
+    private synchronized Map<?, ?>[] labeledSlots(int index) {
+        if (index >= labeledChildren.length) {
+            labeledChildren = Arrays.copyOf(labeledChildren, Metric.count());
+        }
+        return labeledChildren;
+    }
+}
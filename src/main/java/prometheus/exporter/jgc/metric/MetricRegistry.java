@@ -16,8 +16,13 @@
 package prometheus.exporter.jgc.metric;
 
 import io.prometheus.client.*;
-import java.util.List;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 public class MetricRegistry extends CollectorRegistry {
     public static final MetricRegistry SINGLETON = new MetricRegistry();
@@ -44,63 +49,102 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_collect_files")
                                     .help("jgc exporter collect file list")
                                     .create());
+
+    public static final Metric<Gauge.Child, Gauge> GC_COLLECT_FILE_ALIASES =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host", "alias"))
+                                    .name("jgc_collect_file_aliases")
+                                    .help("Other paths resolving to the same collected file")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> GC_PROCESS_INFO =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host", "pid", "main_class"))
+                                    .name("jgc_process_info")
+                                    .help("Java process writing the discovered gc log file")
+                                    .create());
     public static final Metric<Counter.Child, Counter> GC_LOG_LINES =
             Metric.of(
                     () ->
                             Counter.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_log_lines")
                                     .help("Number of process log lines")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> GC_EVENT_DURATION =
+    public static final Metric<Distribution.Child, Distribution> GC_EVENT_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
+                            Distribution.build()
                                     .name("jgc_event_duration_seconds")
                                     .help("Duration of gc event")
-                                    .labelNames("path", "host", "category")
+                                    .labelNames(PathLabels.names("host", "category"))
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> GC_EVENT_LAST_MINUTE_DURATION =
+    public static final Metric<Distribution.Child, Distribution> GC_EVENT_LAST_MINUTE_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
+                            Distribution.build()
                                     .ageBuckets(6)
                                     .maxAgeSeconds(60)
                                     .quantile(0, 0.05)
                                     .quantile(0.5, 0.05)
                                     .quantile(0.75, 0.05)
                                     .quantile(1.0, 0.05)
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_event_last_minute_duration_seconds")
                                     .help("Last minute duration of gc event")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> GC_EVENT_LAST_MINUTE_PAUSE_DURATION =
+    public static final Metric<Distribution.Child, Distribution>
+            GC_EVENT_LAST_MINUTE_PAUSE_DURATION =
+                    Metric.of(
+                            () ->
+                                    Distribution.build()
+                                            .ageBuckets(6)
+                                            .maxAgeSeconds(60)
+                                            .quantile(0, 0.05)
+                                            .quantile(0.5, 0.05)
+                                            .quantile(0.75, 0.05)
+                                            .quantile(1.0, 0.05)
+                                            .labelNames(PathLabels.names("host"))
+                                            .name("jgc_event_last_minute_pause_duration_seconds")
+                                            .help("Last minute pause duration of gc event")
+                                            .create());
+
+    public static final Metric<SlidingWindow.Child, SlidingWindow> GC_EVENT_WINDOW_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .ageBuckets(6)
-                                    .maxAgeSeconds(60)
-                                    .quantile(0, 0.05)
-                                    .quantile(0.5, 0.05)
-                                    .quantile(0.75, 0.05)
-                                    .quantile(1.0, 0.05)
-                                    .labelNames("path", "host")
-                                    .name("jgc_event_last_minute_pause_duration_seconds")
-                                    .help("Last minute pause duration of gc event")
+                            SlidingWindow.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_event_window_duration_seconds")
+                                    .help("Duration of gc event in the last window of log time")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> GC_EVENT_PAUSE_DURATION =
+    public static final Metric<SlidingWindow.Child, SlidingWindow> GC_EVENT_WINDOW_PAUSE_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host", "category")
+                            SlidingWindow.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_event_window_pause_duration_seconds")
+                                    .help(
+                                            "Pause duration of gc event in the last window of log"
+                                                    + " time")
+                                    .create());
+
+    public static final Metric<Distribution.Child, Distribution> GC_EVENT_PAUSE_DURATION =
+            Metric.of(
+                    () ->
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host", "category"))
                                     .name("jgc_event_pause_duration_seconds")
                                     .help("Duration of gc pause event")
                                     .create());
@@ -109,7 +153,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_heap_occupancy_before_collection_bytes")
                                     .help("heap occupancy before collection")
                                     .create());
@@ -118,7 +162,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_heap_size_before_collection_bytes")
                                     .help("heap size before collection")
                                     .create());
@@ -127,7 +171,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_heap_occupancy_after_collection_bytes")
                                     .help("heap occupancy after collection")
                                     .create());
@@ -136,7 +180,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_heap_size_after_collection_bytes")
                                     .help("heap size after collection")
                                     .create());
@@ -145,7 +189,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_young_occupancy_before_collection_bytes")
                                     .help("young generation occupancy before collection")
                                     .create());
@@ -154,7 +198,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_young_size_before_collection_bytes")
                                     .help("young generation size before collection")
                                     .create());
@@ -163,7 +207,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_young_occupancy_after_collection_bytes")
                                     .help("young generation occupancy after collection")
                                     .create());
@@ -172,7 +216,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_young_size_after_collection_bytes")
                                     .help("young generation size after collection")
                                     .create());
@@ -181,7 +225,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_old_occupancy_before_collection_bytes")
                                     .help("old generation occupancy before collection")
                                     .create());
@@ -190,7 +234,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_old_size_before_collection_bytes")
                                     .help("old generation size before collection")
                                     .create());
@@ -199,7 +243,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_old_occupancy_after_collection_bytes")
                                     .help("old generation occupancy after collection")
                                     .create());
@@ -208,7 +252,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_old_size_after_collection_bytes")
                                     .help("old generation size after collection")
                                     .create());
@@ -217,7 +261,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_metaspace_occupancy_before_collection_bytes")
                                     .help("metaspace occupancy before collection")
                                     .create());
@@ -226,7 +270,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_metaspace_size_before_collection_bytes")
                                     .help("metaspace size before collection")
                                     .create());
@@ -235,7 +279,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_metaspace_occupancy_after_collection_bytes")
                                     .help("metaspace occupancy after collection")
                                     .create());
@@ -244,61 +288,62 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_metaspace_size_after_collection_bytes")
                                     .help("metaspace size after collection")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> CMS_CLASS_UNLOADING_PROCESS_TIME =
+    public static final Metric<Distribution.Child, Distribution> CMS_CLASS_UNLOADING_PROCESS_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_cms_class_unloading_process_duration_seconds")
                                     .help("class unloading process time")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> CMS_SYMBOL_TABLE_PROCESS_TIME =
+    public static final Metric<Distribution.Child, Distribution> CMS_SYMBOL_TABLE_PROCESS_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_cms_symbol_table_process_duration_seconds")
                                     .help("symbol table process time")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> CMS_STRING_TABLE_PROCESS_TIME =
+    public static final Metric<Distribution.Child, Distribution> CMS_STRING_TABLE_PROCESS_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_cms_string_table_process_duration_seconds")
                                     .help("string table process duration")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> CMS_SYMBOL_AND_STRING_TABLE_PROCESS_TIME =
-            Metric.of(
-                    () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
-                                    .name("jgc_cms_symbol_and_string_table_process_seconds")
-                                    .help("symbol and string table process duration")
-                                    .create());
+    public static final Metric<Distribution.Child, Distribution>
+            CMS_SYMBOL_AND_STRING_TABLE_PROCESS_TIME =
+                    Metric.of(
+                            () ->
+                                    Distribution.build()
+                                            .labelNames(PathLabels.names("host"))
+                                            .name("jgc_cms_symbol_and_string_table_process_seconds")
+                                            .help("symbol and string table process duration")
+                                            .create());
 
     public static final Metric<Gauge.Child, Gauge> SOFT_REFERENCE_COUNT =
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_soft_references")
                                     .help("amount of soft references")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> SOFT_REFERENCE_PAUSE_TIME =
+    public static final Metric<Distribution.Child, Distribution> SOFT_REFERENCE_PAUSE_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_soft_reference_pause_duration_seconds")
                                     .help("soft reference pause duration")
                                     .create());
@@ -307,16 +352,16 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_weak_references")
                                     .help("amount of weak references")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> WEAK_REFERENCE_PAUSE_TIME =
+    public static final Metric<Distribution.Child, Distribution> WEAK_REFERENCE_PAUSE_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_weak_reference_pause_seconds")
                                     .help("weak reference pause duration")
                                     .create());
@@ -325,16 +370,16 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_final_references")
                                     .help("amount of final references")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> FINAL_REFERENCE_PAUSE_TIME =
+    public static final Metric<Distribution.Child, Distribution> FINAL_REFERENCE_PAUSE_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_final_reference_pause_duration_seconds")
                                     .help("final reference pause duration")
                                     .create());
@@ -343,7 +388,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_phantom_references")
                                     .help("amount of phantom references")
                                     .create());
@@ -352,16 +397,16 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_free_phantom_references")
                                     .help("amount of free phantom references")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> PHANTOM_REFERENCE_PAUSE_TIME =
+    public static final Metric<Distribution.Child, Distribution> PHANTOM_REFERENCE_PAUSE_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_phantom_reference_pause_duration_seconds")
                                     .help("phantom reference pause duration")
                                     .create());
@@ -370,16 +415,16 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_jni_weak_references")
                                     .help("amount of jni weak references")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> JNI_WEAK_REFERENCE_PAUSE_TIME =
+    public static final Metric<Distribution.Child, Distribution> JNI_WEAK_REFERENCE_PAUSE_TIME =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_jni_weak_reference_pause_duration_seconds")
                                     .help("jni weak reference pause duration")
                                     .create());
@@ -388,7 +433,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_occupancy_after_collection_bytes")
                                     .help("eden occupancy bytes after collection")
                                     .create());
@@ -397,7 +442,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_heap_occupancy_before_collection_bytes")
                                     .help("eden heap occupancy bytes before collection")
                                     .create());
@@ -406,7 +451,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_size_after_collection_bytes")
                                     .help("eden size after collection")
                                     .create());
@@ -415,7 +460,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_size_before_collection_bytes")
                                     .help("eden size before collection")
                                     .create());
@@ -423,7 +468,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_heap_occupancy_after_collection_bytes")
                                     .help("survivor heap occupancy bytes after collection")
                                     .create());
@@ -432,7 +477,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_heap_occupancy_before_collection_bytes")
                                     .help("survivor heap occupancy bytes before collection")
                                     .create());
@@ -441,7 +486,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_size_bytes")
                                     .help("survivor size")
                                     .create());
@@ -450,7 +495,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_before_collection_regions")
                                     .help("amount of g1 eden region before collection")
                                     .create());
@@ -459,7 +504,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_after_collection_regions")
                                     .help("amount of g1 eden region after collection")
                                     .create());
@@ -468,7 +513,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_eden_assign_regions")
                                     .help("amount of g1 eden assign regions")
                                     .create());
@@ -477,7 +522,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_before_collection_regions")
                                     .help("amount of g1 survivor region before collection")
                                     .create());
@@ -486,7 +531,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_after_collection_regions")
                                     .help("amount of g1 survivor region after collection")
                                     .create());
@@ -495,7 +540,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_survivor_assign_regions")
                                     .help("amount of g1 survivor assign regions")
                                     .create());
@@ -504,7 +549,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_old_before_collection_regions")
                                     .help("amount of g1 old regions before collection")
                                     .create());
@@ -513,7 +558,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_old_after_collection_regions")
                                     .help("amount of g1 old regions after collection")
                                     .create());
@@ -522,7 +567,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_old_assign_regions")
                                     .help("amount of g1 old assign regions")
                                     .create());
@@ -531,7 +576,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_humongous_before_collection_regions")
                                     .help("amount of g1 humongous regions before collection")
                                     .create());
@@ -540,7 +585,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_humongous_after_collection_regions")
                                     .help("amount of g1 humongous regions after collection")
                                     .create());
@@ -549,7 +594,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_humongous_assign_regions")
                                     .help("amount of g1 humongous assign regions")
                                     .create());
@@ -558,7 +603,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_archive_before_collection_regions")
                                     .help("amount of g1 archive regions before collection")
                                     .create());
@@ -567,7 +612,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_archive_after_collection_regions")
                                     .help("amount of g1 archive regions after collection")
                                     .create());
@@ -576,88 +621,92 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_g1_archive_assign_regions")
                                     .help("amount of g1 archive assign regions")
                                     .create());
-    public static final Metric<Summary.Child, Summary> ZGC_PAUSE_MARK_START_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_PAUSE_MARK_START_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_pause_mark_start_duration_seconds")
                                     .help("zgc pause mark start duration")
                                     .create());
-    public static final Metric<Summary.Child, Summary> ZGC_CONCURRENT_MARK_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_CONCURRENT_MARK_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_concurrent_mark_duration_seconds")
                                     .help("zgc concurrent mark duration")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_CONCURRENT_MARK_FREE_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_CONCURRENT_MARK_FREE_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_concurrent_mark_free_duration_seconds")
                                     .help("zgc concurrent mark free duration")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_PAUSE_MARK_END_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_PAUSE_MARK_END_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_pause_mark_end_duration_seconds")
                                     .help("zgc concurrent mark end duration")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_PROCESS_NON_STRONG_REFERENCES_DURATION =
-            Metric.of(
-                    () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
-                                    .name("jgc_zgc_process_non_strong_references_duration_seconds")
-                                    .help("zgc process non-strong references duration")
-                                    .create());
+    public static final Metric<Distribution.Child, Distribution>
+            ZGC_PROCESS_NON_STRONG_REFERENCES_DURATION =
+                    Metric.of(
+                            () ->
+                                    Distribution.build()
+                                            .labelNames(PathLabels.names("host"))
+                                            .name(
+                                                    "jgc_zgc_process_non_strong_references_duration_seconds")
+                                            .help("zgc process non-strong references duration")
+                                            .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_CONCURRENT_RESET_RELOCATIONSET_DURATION =
-            Metric.of(
-                    () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
-                                    .name("jgc_zgc_concurrent_reset_relocationset_duration_seconds")
-                                    .help("zgc concurrent reset relocationset duration")
-                                    .create());
+    public static final Metric<Distribution.Child, Distribution>
+            ZGC_CONCURRENT_RESET_RELOCATIONSET_DURATION =
+                    Metric.of(
+                            () ->
+                                    Distribution.build()
+                                            .labelNames(PathLabels.names("host"))
+                                            .name(
+                                                    "jgc_zgc_concurrent_reset_relocationset_duration_seconds")
+                                            .help("zgc concurrent reset relocationset duration")
+                                            .create());
 
-    public static final Metric<Summary.Child, Summary>
+    public static final Metric<Distribution.Child, Distribution>
             ZGC_CONCURRENT_SELECT_RELOCATIONSET_DURATION =
                     Metric.of(
                             () ->
-                                    Summary.build()
-                                            .labelNames("path", "host")
+                                    Distribution.build()
+                                            .labelNames(PathLabels.names("host"))
                                             .name(
                                                     "jgc_zgc_concurrent_select_relocationset_duration_seconds")
                                             .help("zgc concurrent select relocationset duration")
                                             .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_PAUSE_RELOCATE_START_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_PAUSE_RELOCATE_START_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_pause_relocate_start_duration_seconds")
                                     .help("zgc pause relocate start duration")
                                     .create());
 
-    public static final Metric<Summary.Child, Summary> ZGC_CONCURRENT_RELOCATE_DURATION =
+    public static final Metric<Distribution.Child, Distribution> ZGC_CONCURRENT_RELOCATE_DURATION =
             Metric.of(
                     () ->
-                            Summary.build()
-                                    .labelNames("path", "host")
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_concurrent_relocate_duration_seconds")
                                     .help("zgc concurrent relocate duration")
                                     .create());
@@ -666,7 +715,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_1m_cpu_load")
                                     .help("zgc latest 1 minute cpu load average")
                                     .create());
@@ -675,7 +724,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_5m_cpu_load")
                                     .help("zgc latest 5 minute cpu load average")
                                     .create());
@@ -684,7 +733,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_15m_cpu_load")
                                     .help("zgc latest 15 minute cpu load average")
                                     .create());
@@ -693,7 +742,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_2ms_mmu_ratio")
                                     .help("zgc 2ms mmu ratio")
                                     .create());
@@ -702,7 +751,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_5ms_mmu_ratio")
                                     .help("zgc 5ms mmu ratio")
                                     .create());
@@ -711,7 +760,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_10ms_mmu_ratio")
                                     .help("zgc 10ms mmu ratio")
                                     .create());
@@ -720,7 +769,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_20ms_mmu_ratio")
                                     .help("zgc 20ms mmu ratio")
                                     .create());
@@ -729,7 +778,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_50ms_mmu_ratio")
                                     .help("zgc 50ms mmu ratio")
                                     .create());
@@ -738,7 +787,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_100ms_mmu_ratio")
                                     .help("zgc 100ms mmu ratio")
                                     .create());
@@ -747,7 +796,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_mark_start_used_bytes")
                                     .help("zgc mark start used")
                                     .create());
@@ -756,7 +805,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_mark_start_free_bytes")
                                     .help("zgc mark start free")
                                     .create());
@@ -765,7 +814,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_mark_end_used_bytes")
                                     .help("zgc mark end used")
                                     .create());
@@ -774,7 +823,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_mark_end_free_bytes")
                                     .help("zgc mark end free")
                                     .create());
@@ -783,7 +832,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_relocate_start_used_bytes")
                                     .help("zgc relocate start used")
                                     .create());
@@ -792,7 +841,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_relocate_start_free_bytes")
                                     .help("zgc relocate start free")
                                     .create());
@@ -801,7 +850,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_relocate_end_used_bytes")
                                     .help("zgc relocate end used")
                                     .create());
@@ -810,7 +859,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_relocate_end_free_bytes")
                                     .help("zgc relocate end free")
                                     .create());
@@ -819,7 +868,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_live_mark_end_bytes")
                                     .help("zgc live mark end")
                                     .create());
@@ -828,7 +877,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_live_reclaim_start_bytes")
                                     .help("zgc live reclaim start")
                                     .create());
@@ -837,7 +886,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_live_reclaim_end_bytes")
                                     .help("zgc live reclaim end")
                                     .create());
@@ -846,7 +895,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_allocated_mark_end_bytes")
                                     .help("zgc allocated mark end")
                                     .create());
@@ -855,7 +904,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_allocated_reclaim_start_bytes")
                                     .help("zgc allocated reclaim start")
                                     .create());
@@ -864,7 +913,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_allocated_reclaim_end_bytes")
                                     .help("zgc allocated reclaim end")
                                     .create());
@@ -873,7 +922,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_garbage_mark_end_bytes")
                                     .help("zgc garbage mark end")
                                     .create());
@@ -882,7 +931,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_garbage_reclaim_start_heap_bytes")
                                     .help("zgc garbage reclaim start")
                                     .create());
@@ -891,7 +940,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_garbage_reclaim_end_bytes")
                                     .help("zgc garbage reclaim end")
                                     .create());
@@ -900,7 +949,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_reclaimed_reclaim_start_bytes")
                                     .help("zgc reclaim start")
                                     .create());
@@ -909,7 +958,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_reclaimed_reclaim_end_bytes")
                                     .help("zgc reclaim end")
                                     .create());
@@ -918,7 +967,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_memory_reclaim_start_bytes")
                                     .help("zgc memory reclaim start")
                                     .create());
@@ -927,7 +976,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_memory_reclaim_end_bytes")
                                     .help("zgc memory reclaim end")
                                     .create());
@@ -936,7 +985,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_metaspace_used_bytes")
                                     .help("metaspace used memory")
                                     .create());
@@ -945,7 +994,7 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_metaspace_committed_bytes")
                                     .help("metaspace committed memory")
                                     .create());
@@ -954,11 +1003,346 @@ public class MetricRegistry extends CollectorRegistry {
             Metric.of(
                     () ->
                             Gauge.build()
-                                    .labelNames("path", "host")
+                                    .labelNames(PathLabels.names("host"))
                                     .name("jgc_zgc_metaspace_reserved_bytes")
                                     .help("metaspace reserved memory")
                                     .create());
 
+    public static final Metric<Counter.Child, Counter> PERFDATA_COLLECTOR_INVOCATIONS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host", "collector"))
+                                    .name("jgc_perfdata_collector_invocations")
+                                    .help("Number of collections read from hsperfdata")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> PERFDATA_COLLECTOR_TIME =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host", "collector"))
+                                    .name("jgc_perfdata_collector_time_seconds")
+                                    .help("Accumulated collection time read from hsperfdata")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> PERFDATA_SPACE_USED =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host", "generation", "space"))
+                                    .name("jgc_perfdata_space_used_bytes")
+                                    .help("Used bytes of space read from hsperfdata")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> PERFDATA_SPACE_CAPACITY =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host", "generation", "space"))
+                                    .name("jgc_perfdata_space_capacity_bytes")
+                                    .help("Capacity bytes of space read from hsperfdata")
+                                    .create());
+
+    public static final Metric<Distribution.Child, Distribution> JFR_PHASE_PAUSE_DURATION =
+            Metric.of(
+                    () ->
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host", "phase"))
+                                    .name("jgc_jfr_phase_pause_duration_seconds")
+                                    .help("Duration of gc pause phase read from jfr")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> JFR_G1_REGIONS =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host", "type"))
+                                    .name("jgc_jfr_g1_regions")
+                                    .help("Current amount of g1 regions by type read from jfr")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> TAILER_READ_BYTES =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_tailer_read_bytes")
+                                    .help("Bytes of complete lines read from the file")
+                                    .create());
+
+    public static final Metric<Distribution.Child, Distribution> TAILER_READ_DURATION =
+            Metric.of(
+                    () ->
+                            Distribution.build()
+                                    .labelNames("host")
+                                    .name("jgc_tailer_read_duration_seconds")
+                                    .help("Duration of reading one batch of lines from a file")
+                                    .histogram()
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> GC_SHED_LINES =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_shed_lines")
+                                    .help("Number of low value log lines skipped under overload")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> TAILER_LAG =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_tailer_lag_bytes")
+                                    .help("Bytes of the file not read yet")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> TAILER_MAX_LAG =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_tailer_max_lag_bytes")
+                                    .help("Largest number of bytes not read yet of all files")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> TAILER_THROTTLED =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_tailer_throttled")
+                                    .help("Number of reads stopped at the lines per second limit")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> EVENT_DELAY =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames(PathLabels.names("host"))
+                                    .name("jgc_event_delay_seconds")
+                                    .help(
+                                            "Delay between the newest event of the log and its"
+                                                    + " parsing, for logs with dates")
+                                    .create());
+
+    public static final Metric<SlidingWindow.Child, SlidingWindow> EVENT_WINDOW_DELAY =
+            Metric.of(
+                    () ->
+                            SlidingWindow.build()
+                                    .labelNames("host")
+                                    .name("jgc_event_window_delay_seconds")
+                                    .help(
+                                            "Delay of the events of all logs in the last window of"
+                                                    + " wall time, the max is the largest lag")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> TAILER_SCAN_DURATION =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_tailer_scan_seconds")
+                                    .help("Duration of the last scan for matching files")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> TAILER_SCAN_FILES =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_tailer_scan_files")
+                                    .help("Number of matching files found by the last scan")
+                                    .create());
+
+    public static final Metric<Distribution.Child, Distribution> PARSER_DETECT_DURATION =
+            Metric.of(
+                    () ->
+                            Distribution.build()
+                                    .labelNames("host")
+                                    .name("jgc_parser_detect_duration_seconds")
+                                    .help(
+                                            "Duration of detecting the jvm and collector of a new"
+                                                    + " log")
+                                    .histogram()
+                                    .create());
+
+    public static final Metric<Distribution.Child, Distribution> PARSER_RECEIVE_DURATION =
+            Metric.of(
+                    () ->
+                            Distribution.build()
+                                    .labelNames(PathLabels.names("host", "parser"))
+                                    .name("jgc_parser_receive_duration_seconds")
+                                    .help("Duration of one parser receiving one line")
+                                    .histogram()
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> PARSER_ERRORS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host", "parser"))
+                                    .name("jgc_parser_errors")
+                                    .help("Number of lines a parser failed on")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> PARSER_EVENTS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames(PathLabels.names("host", "type"))
+                                    .name("jgc_parser_events")
+                                    .help("Number of events published by the parsers")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> EXPOSITION_RENDER_DURATION =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_exposition_render_seconds")
+                                    .help("Duration of the last rendering of the metrics page")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> EXPOSITION_SIZE =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host", "encoding")
+                                    .name("jgc_exposition_size_bytes")
+                                    .help("Size of the metrics page")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> EXPOSITION_RENDERS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_exposition_renders")
+                                    .help("Number of renderings of the metrics page")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> EXPOSITION_COALESCED_REQUESTS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_exposition_coalesced_requests")
+                                    .help("Number of scrapes served by a rendering already running")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> REMOTE_WRITE_SAMPLES =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_remote_write_samples")
+                                    .help("Number of samples accepted by the remote write endpoint")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> REMOTE_WRITE_FAILED_REQUESTS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_remote_write_failed_requests")
+                                    .help("Number of failed remote write requests")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> REMOTE_WRITE_DROPPED_REQUESTS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_remote_write_dropped_requests")
+                                    .help("Number of remote write requests given up on")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> REMOTE_WRITE_PENDING_REQUESTS =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_remote_write_pending_requests")
+                                    .help("Number of remote write requests waiting to be sent")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> SERIES =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_series")
+                                    .help("Number of series of the gc log and jfr targets")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> HOST_PAUSE_SECONDS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host")
+                                    .name("jgc_host_pause_seconds")
+                                    .help("Pause seconds of all logs on the host")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> HOST_PAUSES =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host", "category")
+                                    .name("jgc_host_pauses")
+                                    .help("Number of pauses of all logs on the host")
+                                    .create());
+
+    public static final Metric<SlidingWindow.Child, SlidingWindow> HOST_WINDOW_PAUSE_DURATION =
+            Metric.of(
+                    () ->
+                            SlidingWindow.build()
+                                    .labelNames("host")
+                                    .name("jgc_host_window_pause_duration_seconds")
+                                    .help(
+                                            "Pause duration of all logs on the host in the last"
+                                                    + " window of wall time")
+                                    .create());
+
+    public static final Metric<Gauge.Child, Gauge> HOST_HEAP_OCCUPANCY_AFTER_COLLECTION =
+            Metric.of(
+                    () ->
+                            Gauge.build()
+                                    .labelNames("host")
+                                    .name("jgc_host_heap_occupancy_after_collection_bytes")
+                                    .help(
+                                            "Sum of heap occupancy after collection of all logs on"
+                                                    + " the host")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> SERIES_EVICTIONS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host", "reason")
+                                    .name("jgc_series_evictions")
+                                    .help("Number of series evicted, as stale or over the limit")
+                                    .create());
+
+    public static final Metric<Counter.Child, Counter> PATH_LABEL_OVERFLOWS =
+            Metric.of(
+                    () ->
+                            Counter.build()
+                                    .labelNames("host", "label")
+                                    .name("jgc_path_label_overflows")
+                                    .help(
+                                            "Number of path label values folded into other, once"
+                                                    + " the label reached its limit")
+                                    .create());
+
+    private static final Map<Object, Lease> LEASES = new ConcurrentHashMap<>();
+    private static final List<Consumer<List<Collector>>> DETACH_LISTENERS =
+            new CopyOnWriteArrayList<>();
+    private static volatile boolean changed = true;
+    private static long version;
     private final List<Metric> collectors;
 
     private MetricRegistry() {
@@ -982,7 +1366,167 @@ public class MetricRegistry extends CollectorRegistry {
         }
     }
 
+    /** Distributions of all targets backed by sketches. */
+    public List<Distribution> sketches() {
+        List<Distribution> sketches = new ArrayList<>();
+        for (Metric<?, ?> metric : collectors) {
+            for (Object target : metric.targets()) {
+                if (target instanceof Distribution && ((Distribution) target).isSketch()) {
+                    sketches.add((Distribution) target);
+                }
+            }
+        }
+        return sketches;
+    }
+
+    /**
+     * Enable the families matching {@code include}, all of them when it is empty, except those
+     * matching {@code exclude}. Patterns are family names, {@code *} matches any characters.
+     */
+    public static void configure(Collection<String> include, Collection<String> exclude) {
+        List<Pattern> includes = compile(include);
+        List<Pattern> excludes = compile(exclude);
+        for (Metric<?, ?> metric : SINGLETON.collectors) {
+            String[] names = metric.names();
+            metric.setEnabled(
+                    (includes.isEmpty() || matches(includes, names)) && !matches(excludes, names));
+        }
+    }
+
+    private static List<Pattern> compile(Collection<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        if (globs != null) {
+            for (String glob : globs) {
+                String[] parts = glob.split("\\*", -1);
+                StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+                for (int i = 1; i < parts.length; ++i) {
+                    regex.append(".*").append(Pattern.quote(parts[i]));
+                }
+                patterns.add(Pattern.compile(regex.toString()));
+            }
+        }
+        return patterns;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String[] names) {
+        for (Pattern pattern : patterns) {
+            for (String name : names) {
+                if (pattern.matcher(name).matches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Text format 0.0.4 of the samples accepted by {@code filter}, written in one pass over the
+     * metrics without building the merged families of {@link #filteredMetricFamilySamples}.
+     */
+    public void write004(Writer writer, Predicate<String> filter) throws IOException {
+        TextWriter textWriter = new TextWriter(writer);
+        for (Metric<?, ?> metric : collectors) {
+            metric.write(textWriter, filter);
+        }
+        textWriter.finish();
+    }
+
     public static void detach(Object object) {
-        SINGLETON.collectors.forEach(collector -> collector.detach(object));
+        List<Collector> detached = new ArrayList<>();
+        for (Metric<?, ?> collector : SINGLETON.collectors) {
+            Collector target = collector.detach(object);
+            if (target != null) {
+                detached.add(target);
+            }
+        }
+        Lease lease = LEASES.remove(object);
+        if (lease != null) {
+            lease.evicted = true;
+        }
+        markChanged();
+        if (!detached.isEmpty()) {
+            DETACH_LISTENERS.forEach(listener -> listener.accept(detached));
+        }
+    }
+
+    static Lease lease(Object target) {
+        return LEASES.computeIfAbsent(target, Lease::new);
+    }
+
+    /** Number of series of the bound targets. */
+    public static int series() {
+        int series = 0;
+        for (Lease lease : LEASES.values()) {
+            series += lease.series.get();
+        }
+        return series;
+    }
+
+    /**
+     * Detach the bound targets not updated for {@code ttl} ms, then the least recently updated ones
+     * until at most {@code maxSeries} series are left. Zero disables either, the evicted series by
+     * reason are returned.
+     */
+    public static Map<String, Integer> evict(long ttl, int maxSeries) {
+        return evict(LEASES.values(), System.currentTimeMillis(), ttl, maxSeries);
+    }
+
+    static Map<String, Integer> evict(
+            Collection<Lease> candidates, long now, long ttl, int maxSeries) {
+        Map<String, Integer> evicted = new HashMap<>();
+        // updatedAt moves under our feet, sorting on it directly may break the comparator contract
+        List<Map.Entry<Lease, Long>> leases = new ArrayList<>(candidates.size());
+        for (Lease lease : candidates) {
+            leases.add(new AbstractMap.SimpleImmutableEntry<>(lease, lease.updatedAt));
+        }
+        leases.sort(Map.Entry.comparingByValue());
+        int series = 0;
+        for (Map.Entry<Lease, Long> entry : leases) {
+            series += entry.getKey().series.get();
+        }
+        for (Map.Entry<Lease, Long> entry : leases) {
+            Lease lease = entry.getKey();
+            String reason;
+            if (ttl > 0 && now - entry.getValue() > ttl) {
+                reason = "stale";
+            } else if (maxSeries > 0 && series > maxSeries) {
+                reason = "limit";
+            } else {
+                break;
+            }
+            int count = lease.series.get();
+            detach(lease.target);
+            series -= count;
+            evicted.merge(reason, count, Integer::sum);
+        }
+        return evicted;
+    }
+
+    /**
+     * Receive the collectors of each detached target, they hold its final values and are no longer
+     * exported.
+     */
+    public static void addDetachListener(Consumer<List<Collector>> listener) {
+        DETACH_LISTENERS.add(listener);
+    }
+
+    public static void removeDetachListener(Consumer<List<Collector>> listener) {
+        DETACH_LISTENERS.remove(listener);
+    }
+
+    /** Note that some metric was updated, the read before the write keeps the line shared. */
+    public static void markChanged() {
+        if (!changed) {
+            changed = true;
+        }
+    }
+
+    /** Version of the metrics, it moves once some metric was updated since the last call. */
+    public static synchronized long version() {
+        if (changed) {
+            changed = false;
+            ++version;
+        }
+        return version;
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.PATH_LABEL_OVERFLOWS;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Labels derived from the path of a log, they replace the {@code path} label of every family. The
+ * first rule matching a path supplies the named groups of the same name as a label, labels without
+ * a group are empty. A path matching no rule keeps the whole path in a {@code path} label. Parts of
+ * the path not captured are dropped. Once {@code limit} values of a label are live, i.e. held by
+ * paths {@link #acquire acquired} and not yet released, further values are folded into {@link
+ * #OTHER}. Two live paths may thus share their values, either folded or because the rules drop what
+ * tells them apart, their series are then merged on export. Without rules the full path is kept as
+ * is.
+ */
+public final class PathLabels {
+    public static final String PATH = "path";
+    public static final String OTHER = "other";
+
+    /** Names of the labels following the path labels in some family. */
+    public static final Set<String> RESERVED =
+            Collections.unmodifiableSet(
+                    new HashSet<>(
+                            Arrays.asList(
+                                    "host",
+                                    "alias",
+                                    "pid",
+                                    "main_class",
+                                    "category",
+                                    "collector",
+                                    "generation",
+                                    "space",
+                                    "phase",
+                                    "parser",
+                                    "type",
+                                    "window",
+                                    "quantile",
+                                    "le")));
+
+    private static final Pattern GROUP = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+    private static volatile List<Pattern> rules = Collections.emptyList();
+    private static volatile List<Set<String>> groups = Collections.emptyList();
+    private static volatile String[] names = {PATH};
+    private static volatile int limit;
+    private static volatile boolean folding;
+    // label -> live value -> paths holding it, guarded by the class
+    private static final Map<String, Map<String, Integer>> VALUES = new HashMap<>();
+    private static final Map<String, Mapping> PATHS = new ConcurrentHashMap<>();
+    // live values of all path labels -> paths mapped to them, guarded by the class
+    private static final Map<List<String>, Integer> MAPPED = new HashMap<>();
+
+    private PathLabels() {}
+
+    /** Applies to children attached afterwards, so it is set before any handler starts. */
+    public static void configure(List<String> regexes, List<String> labelNames, int limit) {
+        List<Pattern> rules = new ArrayList<>();
+        List<Set<String>> groups = new ArrayList<>();
+        if (regexes != null) {
+            for (String regex : regexes) {
+                rules.add(Pattern.compile(regex));
+                groups.add(groups(regex));
+            }
+        }
+        PathLabels.groups = groups;
+        PathLabels.rules = rules;
+        PathLabels.names =
+                rules.isEmpty() || labelNames == null
+                        ? new String[] {PATH}
+                        : labelNames.toArray(new String[0]);
+        PathLabels.limit = limit;
+        PathLabels.folding = false;
+        synchronized (PathLabels.class) {
+            VALUES.clear();
+            PATHS.clear();
+            MAPPED.clear();
+        }
+    }
+
+    /** Names of the path labels followed by {@code rest}. */
+    public static String[] names(String... rest) {
+        return concat(names, rest);
+    }
+
+    /**
+     * Values of the path labels for the leading path of {@code labels}, then the others. The path
+     * holds its values until {@link #release}, they count against the limit meanwhile and later
+     * calls get the same values without matching again.
+     */
+    public static String[] acquire(String... labels) {
+        if (rules.isEmpty()) {
+            return labels;
+        }
+        String path = labels[0];
+        Mapping mapping;
+        synchronized (PathLabels.class) {
+            mapping = PATHS.get(path);
+            if (mapping == null) {
+                mapping = new Mapping(map(path, true));
+                PATHS.put(path, mapping);
+                if (MAPPED.merge(Arrays.asList(mapping.values), 1, Integer::sum) > 1) {
+                    // another live path has the same values, e.g. a dropped rotation suffix
+                    folding = true;
+                }
+            }
+            ++mapping.holders;
+        }
+        return concat(mapping.values, Arrays.copyOfRange(labels, 1, labels.length));
+    }
+
+    /** Let go of the values of {@code path} once all holders released it. */
+    public static void release(String path) {
+        if (rules.isEmpty()) {
+            return;
+        }
+        synchronized (PathLabels.class) {
+            Mapping mapping = PATHS.get(path);
+            if (mapping == null || --mapping.holders > 0) {
+                return;
+            }
+            PATHS.remove(path);
+            List<String> mapped = Arrays.asList(mapping.values);
+            MAPPED.computeIfPresent(mapped, (values, count) -> count - 1);
+            MAPPED.remove(mapped, 0);
+            String[] names = PathLabels.names;
+            for (int i = 0; i < names.length && i < mapping.values.length; ++i) {
+                Map<String, Integer> live = VALUES.get(names[i]);
+                if (live != null) {
+                    live.computeIfPresent(mapping.values[i], (key, count) -> count - 1);
+                    live.remove(mapping.values[i], 0);
+                }
+            }
+        }
+    }
+
+    /** Values like {@link #acquire} without holding them, e.g. to look a series up. */
+    public static String[] values(String... labels) {
+        if (rules.isEmpty()) {
+            return labels;
+        }
+        Mapping mapping = PATHS.get(labels[0]);
+        String[] values;
+        if (mapping != null) {
+            values = mapping.values;
+        } else {
+            synchronized (PathLabels.class) {
+                values = map(labels[0], false);
+            }
+        }
+        return concat(values, Arrays.copyOfRange(labels, 1, labels.length));
+    }
+
+    private static String[] map(String path, boolean hold) {
+        List<Pattern> rules = PathLabels.rules;
+        Matcher matcher = null;
+        Set<String> groups = Collections.emptySet();
+        for (int i = 0; i < rules.size(); ++i) {
+            Matcher m = rules.get(i).matcher(path);
+            if (m.matches()) {
+                matcher = m;
+                groups = PathLabels.groups.get(i);
+                break;
+            }
+        }
+        String[] names = PathLabels.names;
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            String value = groups.contains(names[i]) ? matcher.group(names[i]) : null;
+            if (value == null) {
+                value = PATH.equals(names[i]) && matcher == null ? path : "";
+            }
+            values[i] = admit(names[i], value, hold);
+        }
+        return values;
+    }
+
+    /** Names of the groups of {@code regex}, the pattern does not expose them. */
+    private static Set<String> groups(String regex) {
+        Set<String> groups = new HashSet<>();
+        Matcher matcher = GROUP.matcher(regex);
+        while (matcher.find()) {
+            groups.add(matcher.group(1));
+        }
+        return groups;
+    }
+
+    private static String admit(String name, String value, boolean hold) {
+        int limit = PathLabels.limit;
+        if (limit <= 0) {
+            return value;
+        }
+        Map<String, Integer> live = VALUES.computeIfAbsent(name, key -> new HashMap<>());
+        if (live.containsKey(value) || live.size() < limit) {
+            if (hold) {
+                live.merge(value, 1, Integer::sum);
+            }
+            return value;
+        }
+        if (hold) {
+            folding = true;
+            PATH_LABEL_OVERFLOWS
+                    .attach(PathLabels.class, OperatingSystem.getLocalHostName(), name)
+                    .inc();
+        }
+        return OTHER;
+    }
+
+    /** Whether two paths were given the same values, so targets may share their series. */
+    static boolean isFolding() {
+        return folding;
+    }
+
+    private static class Mapping {
+        private final String[] values;
+        private int holders;
+
+        private Mapping(String[] values) {
+            this.values = values;
+        }
+    }
+
+    private static String[] concat(String[] head, String[] tail) {
+        String[] result = Arrays.copyOf(head, head.length + tail.length);
+        System.arraycopy(tail, 0, result, head.length, tail.length);
+        return result;
+    }
+}
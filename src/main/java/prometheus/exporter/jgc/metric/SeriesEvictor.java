@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.prometheus.client.Gauge;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Evict the series of targets not updated for {@code ttl} ms, and the least recently updated ones
+ * beyond {@code maxSeries}, see {@link MetricRegistry#evict}. A target is evicted as a whole, the
+ * series of one log age together. Zero disables either limit, the series are still counted.
+ */
+public class SeriesEvictor {
+    private static final Logger LOG = LoggerFactory.getLogger(SeriesEvictor.class);
+    public static final long SWEEP_INTERVAL = 10_000;
+    private final long ttl;
+    private final int maxSeries;
+    private final String host;
+    private final Gauge.Child series;
+    private final ScheduledExecutorService sweeper;
+
+    public SeriesEvictor(long ttl, int maxSeries) {
+        this.ttl = ttl;
+        this.maxSeries = maxSeries;
+        this.host = OperatingSystem.getLocalHostName();
+        this.series = SERIES.attach(this, host);
+        this.sweeper =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("series-evictor")
+                                .setDaemon(true)
+                                .build());
+        this.sweeper.scheduleWithFixedDelay(
+                this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    void sweep() {
+        try {
+            Map<String, Integer> evicted = MetricRegistry.evict(ttl, maxSeries);
+            for (Map.Entry<String, Integer> entry : evicted.entrySet()) {
+                LOG.info("Evict {} {} series", entry.getValue(), entry.getKey());
+                SERIES_EVICTIONS.attach(this, host, entry.getKey()).inc(entry.getValue());
+            }
+            series.set(MetricRegistry.series());
+        } catch (Throwable t) {
+            LOG.error("Evict series failed.", t);
+        }
+    }
+
+    public void close() {
+        sweeper.shutdown();
+        MetricRegistry.detach(this);
+    }
+}
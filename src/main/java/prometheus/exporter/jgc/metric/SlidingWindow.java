@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.SimpleCollector;
+import java.util.*;
+
+/**
+ * Count, sum, min and max of the observations in the last windows of event time, the time stamps of
+ * the gc log rather than the time lines are read, so pauses replayed during catch-up land in the
+ * window they happened in. Each child keeps a ring of per-second buckets spanning the widest
+ * window, so observing is O(1). The clock of a child is its latest event time, advanced by the wall
+ * time elapsed since, so windows still drain once the jvm stops collecting.
+ */
+public class SlidingWindow extends SimpleCollector<SlidingWindow.Child> {
+    /** 1m, 5m and 15m in seconds. */
+    public static final List<Integer> DEFAULT_WINDOWS = Arrays.asList(60, 300, 900);
+
+    private static volatile int[] configuredWindows = toArray(DEFAULT_WINDOWS);
+
+    private final int[] windows;
+    private final String[] windowLabels;
+
+    private SlidingWindow(Builder b) {
+        super(b);
+        this.windows = configuredWindows;
+        this.windowLabels = new String[windows.length];
+        for (int i = 0; i < windows.length; ++i) {
+            windowLabels[i] = windows[i] % 60 == 0 ? windows[i] / 60 + "m" : windows[i] + "s";
+        }
+    }
+
+    /** Windows in seconds, collectors created before are not changed. */
+    public static void configure(Collection<Integer> windows) {
+        configuredWindows = toArray(windows == null ? DEFAULT_WINDOWS : windows);
+    }
+
+    private static int[] toArray(Collection<Integer> windows) {
+        return windows.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+
+    @Override
+    protected Child newChild() {
+        // the child without labels is created by the super constructor, before the fields are set
+        int[] windows = this.windows != null ? this.windows : configuredWindows;
+        return new Child(windows[windows.length - 1]);
+    }
+
+    /** Observe on the child without labels. */
+    public void observe(double value, double time) {
+        noLabelsChild.observe(value, time);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<String> windowNames = new ArrayList<>(labelNames);
+        windowNames.add("window");
+        List<String> quantileNames = new ArrayList<>(windowNames);
+        quantileNames.add("quantile");
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<List<String>, Child> entry : children.entrySet()) {
+            Window[] values = entry.getValue().get(windows, now);
+            for (int i = 0; i < windows.length; ++i) {
+                List<String> windowValues = new ArrayList<>(entry.getKey());
+                windowValues.add(windowLabels[i]);
+                List<String> minValues = new ArrayList<>(windowValues);
+                minValues.add("0.0");
+                List<String> maxValues = new ArrayList<>(windowValues);
+                maxValues.add("1.0");
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname, quantileNames, minValues, values[i].min));
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname, quantileNames, maxValues, values[i].max));
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_count", windowNames, windowValues, values[i].count));
+                samples.add(
+                        new MetricFamilySamples.Sample(
+                                fullname + "_sum", windowNames, windowValues, values[i].sum));
+            }
+        }
+        return familySamplesList(Type.SUMMARY, samples);
+    }
+
+    public static Builder build() {
+        return new Builder();
+    }
+
+    public static class Child {
+        private final int size;
+        private final long[] seconds;
+        private final long[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxs;
+        private long head = Long.MIN_VALUE;
+        private long observedAt;
+
+        private Child(int size) {
+            this.size = size;
+            this.seconds = new long[size];
+            this.counts = new long[size];
+            this.sums = new double[size];
+            this.mins = new double[size];
+            this.maxs = new double[size];
+        }
+
+        /**
+         * Observe {@code value} happened at {@code time} seconds, since the epoch or the jvm start.
+         * A time older than the ring is taken as a restarted clock and clears it.
+         */
+        public synchronized void observe(double value, double time) {
+            long second = (long) Math.floor(time);
+            if (head == Long.MIN_VALUE || second <= head - size) {
+                Arrays.fill(counts, 0);
+                head = second;
+                observedAt = System.currentTimeMillis();
+            } else if (second > head) {
+                head = second;
+                observedAt = System.currentTimeMillis();
+            }
+            int slot = (int) Math.floorMod(second, (long) size);
+            if (counts[slot] == 0 || seconds[slot] != second) {
+                seconds[slot] = second;
+                counts[slot] = 0;
+                sums[slot] = 0;
+                mins[slot] = Double.POSITIVE_INFINITY;
+                maxs[slot] = Double.NEGATIVE_INFINITY;
+            }
+            ++counts[slot];
+            sums[slot] += value;
+            mins[slot] = Math.min(mins[slot], value);
+            maxs[slot] = Math.max(maxs[slot], value);
+        }
+
+        /** Observations of each window ending at the clock of the child. */
+        synchronized Window[] get(int[] windows, long wallTime) {
+            Window[] values = new Window[windows.length];
+            for (int i = 0; i < windows.length; ++i) {
+                values[i] = new Window();
+            }
+            long now = head + Math.max(0, wallTime - observedAt) / 1000;
+            for (int slot = 0; slot < size; ++slot) {
+                if (counts[slot] == 0) {
+                    continue;
+                }
+                long age = now - seconds[slot];
+                for (int i = windows.length - 1; i >= 0 && age < windows[i]; --i) {
+                    values[i].add(counts[slot], sums[slot], mins[slot], maxs[slot]);
+                }
+            }
+            return values;
+        }
+    }
+
+    static class Window {
+        long count;
+        double sum;
+        double min = Double.NaN;
+        double max = Double.NaN;
+
+        private void add(long count, double sum, double min, double max) {
+            this.min = this.count == 0 ? min : Math.min(this.min, min);
+            this.max = this.count == 0 ? max : Math.max(this.max, max);
+            this.count += count;
+            this.sum += sum;
+        }
+    }
+
+    public static class Builder extends SimpleCollector.Builder<Builder, SlidingWindow> {
+        @Override
+        public SlidingWindow create() {
+            return new SlidingWindow(this);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Text format 0.0.4 written sample by sample, the output is the one of {@link TextFormat#write004}.
+ * OpenMetrics only samples are kept aside and written as gauges at the end.
+ */
+class TextWriter {
+    private final Writer writer;
+    private final Map<String, MetricFamilySamples> omFamilies;
+
+    TextWriter(Writer writer) {
+        this.writer = writer;
+        this.omFamilies = new TreeMap<>();
+    }
+
+    void header(String name, Collector.Type type, String help) throws IOException {
+        String suffix =
+                type == Collector.Type.COUNTER
+                        ? "_total"
+                        : type == Collector.Type.INFO ? "_info" : "";
+        writer.write("# HELP ");
+        writer.write(name);
+        writer.write(suffix);
+        writer.write(' ');
+        writeEscaped(help, false);
+        writer.write('\n');
+        writer.write("# TYPE ");
+        writer.write(name);
+        writer.write(suffix);
+        writer.write(' ');
+        writer.write(typeString(type));
+        writer.write('\n');
+    }
+
+    /** Whether the sample is kept for the end, only {@link #sample} the others. */
+    boolean deferred(MetricFamilySamples family, Sample sample) {
+        String suffix = sample.name.substring(Math.min(family.name.length(), sample.name.length()));
+        if (!sample.name.startsWith(family.name)
+                || !(suffix.equals("_created")
+                        || suffix.equals("_gcount")
+                        || suffix.equals("_gsum"))) {
+            return false;
+        }
+        omFamilies
+                .computeIfAbsent(
+                        sample.name,
+                        name ->
+                                new MetricFamilySamples(
+                                        name, Collector.Type.GAUGE, family.help, new ArrayList<>()))
+                .samples
+                .add(sample);
+        return true;
+    }
+
+    void sample(Sample sample) throws IOException {
+        writer.write(sample.name);
+        List<String> labelNames = sample.labelNames;
+        if (!labelNames.isEmpty()) {
+            writer.write('{');
+            for (int i = 0; i < labelNames.size(); ++i) {
+                writer.write(labelNames.get(i));
+                writer.write("=\"");
+                writeEscaped(sample.labelValues.get(i), true);
+                writer.write("\",");
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(Collector.doubleToGoString(sample.value));
+        if (sample.timestampMs != null) {
+            writer.write(' ');
+            writer.write(sample.timestampMs.toString());
+        }
+        writer.write('\n');
+    }
+
+    void finish() throws IOException {
+        for (MetricFamilySamples family : omFamilies.values()) {
+            header(family.name, family.type, family.help);
+            for (Sample sample : family.samples) {
+                sample(sample);
+            }
+        }
+        omFamilies.clear();
+    }
+
+    private void writeEscaped(String s, boolean quote) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '"':
+                    writer.write(quote ? "\\\"" : "\"");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+
+    private static String typeString(Collector.Type type) {
+        switch (type) {
+            case GAUGE:
+            case STATE_SET:
+            case INFO:
+                return "gauge";
+            case COUNTER:
+                return "counter";
+            case SUMMARY:
+                return "summary";
+            case HISTOGRAM:
+            case GAUGE_HISTOGRAM:
+                return "histogram";
+            default:
+                return "untyped";
+        }
+    }
+}
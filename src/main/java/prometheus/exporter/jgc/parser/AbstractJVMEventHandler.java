@@ -15,32 +15,58 @@
  */
 package prometheus.exporter.jgc.parser;
 
-import static prometheus.exporter.jgc.metric.MetricRegistry.GC_COLLECT_FILES;
-import static prometheus.exporter.jgc.metric.MetricRegistry.GC_LOG_LINES;
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
 
+import com.microsoft.gctoolkit.event.jvm.JVMEvent;
 import com.microsoft.gctoolkit.jvm.Diary;
+import com.microsoft.gctoolkit.message.ChannelName;
 import com.microsoft.gctoolkit.message.DataSourceParser;
 import com.microsoft.gctoolkit.message.JVMEventChannel;
 import com.microsoft.gctoolkit.message.JVMEventChannelListener;
+import com.microsoft.gctoolkit.time.DateTimeStamp;
+import io.prometheus.client.exemplars.Exemplar;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.metric.HostRollup;
+import prometheus.exporter.jgc.metric.MetricBinding;
 import prometheus.exporter.jgc.metric.MetricRegistry;
 import prometheus.exporter.jgc.util.OperatingSystem;
 
 public abstract class AbstractJVMEventHandler implements JVMEventChannel {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractJVMEventHandler.class);
-    protected final List<DataSourceParser> parsers;
+    protected List<DataSourceParser> parsers;
+    private List<ParserWorker> workers;
+    private boolean parallel;
     protected final Diary diary;
+    protected final Config config;
     protected final String path;
     protected final String host;
+    protected final MetricBinding metrics;
+    protected final HostRollup rollup;
+    private final GCCycleIndex cycles;
+    private final LoadShedder shedder;
+    private double newestEvent = Double.NEGATIVE_INFINITY;
 
     protected AbstractJVMEventHandler(File file, Diary diary) {
+        this(file, diary, new Config());
+    }
+
+    protected AbstractJVMEventHandler(File file, Diary diary, Config config) {
         this.path = file.getPath();
         this.host = OperatingSystem.getLocalHostName();
         this.diary = diary;
+        this.config = config;
+        this.metrics = MetricBinding.forPath(this, path, host);
+        // set once at start, a quiet file evicted while still tailed gets it back
+        this.metrics.onRenew(() -> metrics.get(GC_COLLECT_FILES).set(1));
+        this.rollup = new HostRollup();
+        this.cycles = new GCCycleIndex();
+        this.shedder = new LoadShedder(config);
         this.parsers = loadParsers();
         initialize();
     }
@@ -48,28 +74,146 @@ public abstract class AbstractJVMEventHandler implements JVMEventChannel {
     protected abstract List<DataSourceParser> loadParsers();
 
     protected void initialize() {
+        parallel = config.isParallelParsers() && parsers.size() > 1;
         for (DataSourceParser parser : parsers) {
             if (!parser.accepts(diary)) {
                 throw new UnsupportedOperationException();
             }
             parser.diary(diary);
-            parser.publishTo(this);
+            parser.publishTo(new CountingChannel(parallel));
+        }
+        workers = new ArrayList<>(parsers.size());
+        for (DataSourceParser parser : parsers) {
+            workers.add(new ParserWorker(parser, metrics));
+        }
+        metrics.get(GC_COLLECT_FILES).set(1);
+    }
+
+    /**
+     * Count the events published by parsers by type, and serialize them when the parsers run on
+     * their own threads.
+     */
+    private class CountingChannel implements JVMEventChannel {
+        private final boolean synchronize;
+
+        private CountingChannel(boolean synchronize) {
+            this.synchronize = synchronize;
+        }
+
+        @Override
+        public void publish(ChannelName channel, JVMEvent event) {
+            metrics.get(PARSER_EVENTS, event.getClass().getSimpleName()).inc();
+            if (!synchronize) {
+                published(channel, event);
+                return;
+            }
+            synchronized (AbstractJVMEventHandler.this) {
+                published(channel, event);
+            }
+        }
+
+        @Override
+        public void registerListener(JVMEventChannelListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private void published(ChannelName channel, JVMEvent event) {
+        recordDelay(event);
+        publish(channel, event);
+    }
+
+    /**
+     * Delay between the newest event and its parsing, it grows when the exporter falls behind the
+     * log. Only logs with dates tell the wall time of their events.
+     */
+    private void recordDelay(JVMEvent event) {
+        DateTimeStamp time = event.getDateTimeStamp();
+        if (time == null || !time.hasDateStamp() || time.toEpochInMillis() <= newestEvent) {
+            return;
         }
-        GC_COLLECT_FILES.attach(this, path, host).set(1);
+        newestEvent = time.toEpochInMillis();
+        long now = System.currentTimeMillis();
+        double delay = Math.max(0, now - newestEvent) / 1000.0;
+        metrics.get(EVENT_DELAY).set(delay);
+        EVENT_WINDOW_DELAY.attach(AbstractJVMEventHandler.class, host).observe(delay, now / 1000.0);
+    }
+
+    private void stopWorkers() {
+        if (workers != null && parallel) {
+            workers.forEach(ParserWorker::close);
+        }
+        workers = null;
+    }
+
+    /**
+     * Continue with the file replacing a rotated one. The diary detected from the original header
+     * still applies, only the parsers are renewed so no partial event leaks across files, while
+     * this handler and its metric children are kept.
+     */
+    public void reset() {
+        stopWorkers();
+        cycles.clear();
+        this.parsers = loadParsers();
+        initialize();
     }
 
     public AbstractJVMEventHandler consume(String message) {
-        GC_LOG_LINES.attach(this, path, host).inc();
-        for (DataSourceParser parser : parsers) {
-            try {
-                parser.receive(message);
-            } catch (Exception ex) {
-                LOG.error("{} error: {}", parser.getClass().getSimpleName(), message, ex);
+        return consume(message, -1);
+    }
+
+    /** Consume a line starting at {@code offset} of the file, negative when unknown. */
+    public AbstractJVMEventHandler consume(String message, long offset) {
+        metrics.get(GC_LOG_LINES).inc();
+        if (shedder.shed(message)) {
+            metrics.get(GC_SHED_LINES).inc();
+            return this;
+        }
+        cycles.line(message, offset);
+        if (workers == null) {
+            // closed, nothing is parsed after the metrics are detached
+            return this;
+        }
+        for (ParserWorker worker : workers) {
+            if (parallel) {
+                worker.submit(message);
+            } else {
+                worker.receive(message);
             }
         }
         return this;
     }
 
+    /** Bytes of the log not read yet, an overload sheds low value lines. */
+    public void lag(long bytes) {
+        shedder.lag(bytes);
+    }
+
+    /** Exemplar tracing {@code value} of {@code event} back to the log, null when unknown. */
+    protected Exemplar exemplar(JVMEvent event, double value) {
+        return cycles.exemplar(event, value);
+    }
+
+    /** Seconds since the epoch when the log has dates, otherwise since the jvm started. */
+    protected static double eventTime(JVMEvent event) {
+        DateTimeStamp time = event.getDateTimeStamp();
+        return time.hasDateStamp() ? time.toEpochInMillis() / 1000.0 : time.toSeconds();
+    }
+
+    /**
+     * Seconds since the epoch of the event for the host rollup, shared by jvms of any uptime. A log
+     * without dates falls back to the wall time, uptimes of different jvms are not comparable.
+     */
+    protected static double hostTime(JVMEvent event) {
+        DateTimeStamp time = event.getDateTimeStamp();
+        return time.hasDateStamp()
+                ? time.toEpochInMillis() / 1000.0
+                : System.currentTimeMillis() / 1000.0;
+    }
+
     @Override
     public void registerListener(JVMEventChannelListener listener) {
         throw new UnsupportedOperationException();
@@ -77,7 +221,11 @@ public abstract class AbstractJVMEventHandler implements JVMEventChannel {
 
     @Override
     public void close() {
+        // no event may be published after the metrics are detached
+        stopWorkers();
+        metrics.close();
         MetricRegistry.detach(this);
+        rollup.close();
     }
 
     @Override
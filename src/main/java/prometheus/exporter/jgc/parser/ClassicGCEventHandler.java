@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
 
 public class ClassicGCEventHandler extends AbstractJVMEventHandler {
     private static final Logger LOG = LoggerFactory.getLogger(ClassicGCEventHandler.class);
@@ -41,6 +42,10 @@ public class ClassicGCEventHandler extends AbstractJVMEventHandler {
         super(file, diary);
     }
 
+    public ClassicGCEventHandler(File file, Diary diary, Config config) {
+        super(file, diary, config);
+    }
+
     @Override
     protected List<DataSourceParser> loadParsers() {
         if (diary.isUnifiedLogging()) {
@@ -66,14 +71,17 @@ public class ClassicGCEventHandler extends AbstractJVMEventHandler {
 
         String category = parseCategory(event);
         LOG.debug("Collect ClassicGCEvent {}", category);
-        GC_EVENT_DURATION.attach(this, path, host, category).observe(event.getDuration());
-        GC_EVENT_LAST_MINUTE_DURATION.attach(this, path, host).observe(event.getDuration());
+        metrics.get(GC_EVENT_DURATION, category).observe(event.getDuration());
+        metrics.get(GC_EVENT_LAST_MINUTE_DURATION).observe(event.getDuration());
+        metrics.get(GC_EVENT_WINDOW_DURATION).observe(event.getDuration(), eventTime(event));
 
         if (event instanceof GenerationalGCPauseEvent) {
-            GC_EVENT_PAUSE_DURATION.attach(this, path, host, category).observe(event.getDuration());
-            GC_EVENT_LAST_MINUTE_PAUSE_DURATION
-                    .attach(this, path, host)
-                    .observe(event.getDuration());
+            metrics.get(GC_EVENT_PAUSE_DURATION, category)
+                    .observe(event.getDuration(), exemplar(event, event.getDuration()));
+            metrics.get(GC_EVENT_LAST_MINUTE_PAUSE_DURATION).observe(event.getDuration());
+            rollup.pause(category, event.getDuration(), hostTime(event));
+            metrics.get(GC_EVENT_WINDOW_PAUSE_DURATION)
+                    .observe(event.getDuration(), eventTime(event));
             recordClassicGCPauseEvent((GenerationalGCPauseEvent) event);
         }
     }
@@ -137,65 +145,50 @@ public class ClassicGCEventHandler extends AbstractJVMEventHandler {
 
         MemoryPoolSummary heapSummary = event.getHeap();
         if (heapSummary != null) {
-            HEAP_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_OCCUPANCY_AFTER_COLLECTION)
                     .set(heapSummary.getOccupancyAfterCollection() * 1024);
-            HEAP_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            rollup.heapOccupancy(heapSummary.getOccupancyAfterCollection() * 1024);
+            metrics.get(HEAP_SIZE_AFTER_COLLECTION)
                     .set(heapSummary.getSizeAfterCollection() * 1024);
-            HEAP_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_SIZE_BEFORE_COLLECTION)
                     .set(heapSummary.getSizeBeforeCollection() * 1024);
-            HEAP_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_OCCUPANCY_BEFORE_COLLECTION)
                     .set(heapSummary.getOccupancyBeforeCollection() * 1024);
         }
 
         MemoryPoolSummary tenuredSummary = event.getTenured();
         if (tenuredSummary != null) {
-            OLD_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(OLD_OCCUPANCY_AFTER_COLLECTION)
                     .set(tenuredSummary.getOccupancyAfterCollection() * 1024);
-            OLD_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(OLD_SIZE_AFTER_COLLECTION)
                     .set(tenuredSummary.getSizeAfterCollection() * 1024);
-            OLD_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(OLD_SIZE_BEFORE_COLLECTION)
                     .set(tenuredSummary.getSizeBeforeCollection() * 1024);
-            OLD_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(OLD_OCCUPANCY_BEFORE_COLLECTION)
                     .set(tenuredSummary.getOccupancyBeforeCollection() * 1024);
         }
 
         MemoryPoolSummary youngSummary = event.getYoung();
         if (youngSummary != null) {
-            YOUNG_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(YOUNG_OCCUPANCY_AFTER_COLLECTION)
                     .set(youngSummary.getOccupancyAfterCollection() * 1024);
-            YOUNG_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(YOUNG_SIZE_AFTER_COLLECTION)
                     .set(youngSummary.getSizeAfterCollection() * 1024);
-            YOUNG_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(YOUNG_SIZE_BEFORE_COLLECTION)
                     .set(youngSummary.getSizeBeforeCollection() * 1024);
-            YOUNG_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(YOUNG_OCCUPANCY_BEFORE_COLLECTION)
                     .set(youngSummary.getOccupancyBeforeCollection() * 1024);
         }
 
         MemoryPoolSummary permOrMetaspace = event.getPermOrMetaspace();
         if (permOrMetaspace != null) {
-            METASPACE_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_OCCUPANCY_AFTER_COLLECTION)
                     .set(permOrMetaspace.getOccupancyAfterCollection() * 1024);
-            METASPACE_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_SIZE_AFTER_COLLECTION)
                     .set(permOrMetaspace.getSizeAfterCollection() * 1024);
-            METASPACE_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_SIZE_BEFORE_COLLECTION)
                     .set(permOrMetaspace.getSizeBeforeCollection() * 1024);
-            METASPACE_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_OCCUPANCY_BEFORE_COLLECTION)
                     .set(permOrMetaspace.getOccupancyBeforeCollection() * 1024);
         }
 
@@ -206,23 +199,16 @@ public class ClassicGCEventHandler extends AbstractJVMEventHandler {
             double symbolAndStringTableProcessingTime =
                     event.getSymbolAndStringTableProcessingTime();
             if (classUnloadingProcessingTime > 0.0) {
-                CMS_CLASS_UNLOADING_PROCESS_TIME
-                        .attach(this, path, host)
-                        .observe(classUnloadingProcessingTime);
+                metrics.get(CMS_CLASS_UNLOADING_PROCESS_TIME).observe(classUnloadingProcessingTime);
             }
             if (symbolTableProcessingTime > 0.0) {
-                CMS_SYMBOL_TABLE_PROCESS_TIME
-                        .attach(this, path, host)
-                        .observe(symbolTableProcessingTime);
+                metrics.get(CMS_SYMBOL_TABLE_PROCESS_TIME).observe(symbolTableProcessingTime);
             }
             if (stringTableProcessingTime > 0.0) {
-                CMS_STRING_TABLE_PROCESS_TIME
-                        .attach(this, path, host)
-                        .observe(stringTableProcessingTime);
+                metrics.get(CMS_STRING_TABLE_PROCESS_TIME).observe(stringTableProcessingTime);
             }
             if (symbolAndStringTableProcessingTime > 0.0) {
-                CMS_SYMBOL_AND_STRING_TABLE_PROCESS_TIME
-                        .attach(this, path, host)
+                metrics.get(CMS_SYMBOL_AND_STRING_TABLE_PROCESS_TIME)
                         .observe(symbolAndStringTableProcessingTime);
             }
         }
@@ -234,35 +220,31 @@ public class ClassicGCEventHandler extends AbstractJVMEventHandler {
     private void recordReferenceSummary(ReferenceGCSummary referenceGCSummary) {
         if (referenceGCSummary != null) {
             int softReferenceCount = referenceGCSummary.getSoftReferenceCount();
-            SOFT_REFERENCE_COUNT.attach(this, path, host).set(softReferenceCount);
+            metrics.get(SOFT_REFERENCE_COUNT).set(softReferenceCount);
             double softReferencePauseTime = referenceGCSummary.getSoftReferencePauseTime();
-            SOFT_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(softReferencePauseTime);
+            metrics.get(SOFT_REFERENCE_PAUSE_TIME).observe(softReferencePauseTime);
 
             int weakReferenceCount = referenceGCSummary.getWeakReferenceCount();
-            WEAK_REFERENCE_COUNT.attach(this, path, host).set(weakReferenceCount);
+            metrics.get(WEAK_REFERENCE_COUNT).set(weakReferenceCount);
             double weakReferencePauseTime = referenceGCSummary.getWeakReferencePauseTime();
-            WEAK_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(weakReferencePauseTime);
+            metrics.get(WEAK_REFERENCE_PAUSE_TIME).observe(weakReferencePauseTime);
 
             int finalReferenceCount = referenceGCSummary.getFinalReferenceCount();
-            FINAL_REFERENCE_COUNT.attach(this, path, host).set(finalReferenceCount);
+            metrics.get(FINAL_REFERENCE_COUNT).set(finalReferenceCount);
             double finalReferencePauseTime = referenceGCSummary.getFinalReferencePauseTime();
-            FINAL_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(finalReferencePauseTime);
+            metrics.get(FINAL_REFERENCE_PAUSE_TIME).observe(finalReferencePauseTime);
 
             int phantomReferenceCount = referenceGCSummary.getPhantomReferenceCount();
-            PHANTOM_REFERENCE_COUNT.attach(this, path, host).set(phantomReferenceCount);
+            metrics.get(PHANTOM_REFERENCE_COUNT).set(phantomReferenceCount);
             int phantomReferenceFreedCount = referenceGCSummary.getPhantomReferenceFreedCount();
-            PHANTOM_REFERENCE_FREE_COUNT.attach(this, path, host).set(phantomReferenceFreedCount);
+            metrics.get(PHANTOM_REFERENCE_FREE_COUNT).set(phantomReferenceFreedCount);
             double phantomReferencePauseTime = referenceGCSummary.getPhantomReferencePauseTime();
-            PHANTOM_REFERENCE_PAUSE_TIME
-                    .attach(this, path, host)
-                    .observe(phantomReferencePauseTime);
+            metrics.get(PHANTOM_REFERENCE_PAUSE_TIME).observe(phantomReferencePauseTime);
 
             int jniWeakReferenceCount = referenceGCSummary.getJniWeakReferenceCount();
-            JNI_WEAK_REFERENCE_COUNT.attach(this, path, host).set(jniWeakReferenceCount);
+            metrics.get(JNI_WEAK_REFERENCE_COUNT).set(jniWeakReferenceCount);
             double jniWeakReferencePauseTime = referenceGCSummary.getJniWeakReferencePauseTime();
-            JNI_WEAK_REFERENCE_PAUSE_TIME
-                    .attach(this, path, host)
-                    .observe(jniWeakReferencePauseTime);
+            metrics.get(JNI_WEAK_REFERENCE_PAUSE_TIME).observe(jniWeakReferencePauseTime);
         }
     }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.parser;
+
+import com.microsoft.gctoolkit.aggregator.EventSource;
+import com.microsoft.gctoolkit.event.GCCause;
+import com.microsoft.gctoolkit.event.GCCauses;
+import com.microsoft.gctoolkit.event.MemoryPoolSummary;
+import com.microsoft.gctoolkit.event.RegionSummary;
+import com.microsoft.gctoolkit.event.SurvivorMemoryPoolSummary;
+import com.microsoft.gctoolkit.event.g1gc.G1GCPauseEvent;
+import com.microsoft.gctoolkit.event.g1gc.G1Mixed;
+import com.microsoft.gctoolkit.event.g1gc.G1Young;
+import com.microsoft.gctoolkit.event.g1gc.G1YoungInitialMark;
+import com.microsoft.gctoolkit.jvm.Diary;
+import com.microsoft.gctoolkit.message.ChannelName;
+import com.microsoft.gctoolkit.message.DataSourceParser;
+import com.microsoft.gctoolkit.message.JVMEventChannel;
+import com.microsoft.gctoolkit.parser.UnifiedG1GCParser;
+import com.microsoft.gctoolkit.time.DateTimeStamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Regex-free parser for the common line shapes of unified G1 young pauses, a pause is claimed on
+ * its {@code Pause Young (...)} start line and published on its summary line. Every other line, and
+ * every line of a pause containing a shape not known here, goes to {@link UnifiedG1GCParser}.
+ */
+public class FastUnifiedG1GCParser implements DataSourceParser {
+    private static final String PAUSE_YOUNG = "Pause Young (";
+    private final UnifiedG1GCParser fallback;
+    private JVMEventChannel channel;
+    private long regionSize = -1;
+
+    // the claimed pause, lines are kept until it is published to replay them if needed
+    private long claimedId = -1;
+    private long publishedId = -1;
+    private final List<String> claimedLines = new ArrayList<>();
+    private DateTimeStamp timeStamp;
+    private RegionSummary eden, survivor, old, humongous;
+    private MemoryPoolSummary metaspace;
+
+    public FastUnifiedG1GCParser() {
+        this.fallback = new UnifiedG1GCParser();
+    }
+
+    @Override
+    public void receive(String line) {
+        int gcStart = line.indexOf("] GC(");
+        if (gcStart < 0) {
+            if (regionSize < 0) {
+                regionSize = parseRegionSize(line);
+            }
+            fallback.receive(line);
+            return;
+        }
+        int idStart = gcStart + 5;
+        int idEnd = line.indexOf(')', idStart);
+        long id = idEnd < 0 ? -1 : parseLong(line, idStart, idEnd);
+        if (id < 0 || idEnd + 2 > line.length()) {
+            fallback.receive(line);
+            return;
+        }
+        String message = line.substring(idEnd + 2);
+
+        if (id == claimedId) {
+            claimedLines.add(line);
+            if (!consume(message)) {
+                release();
+            }
+        } else if (id == publishedId) {
+            if (!ignorable(message)) {
+                fallback.receive(line);
+            }
+        } else if (message.startsWith(PAUSE_YOUNG) && message.indexOf("->") < 0) {
+            if (claimedId >= 0) {
+                release();
+            }
+            claim(id, line);
+        } else {
+            fallback.receive(line);
+        }
+    }
+
+    private void claim(long id, String line) {
+        claimedId = id;
+        claimedLines.add(line);
+        timeStamp = DateTimeStamp.fromGCLogLine(line);
+        eden = survivor = old = humongous = null;
+        metaspace = null;
+    }
+
+    /** Give up the claimed pause, gctoolkit parses it from its first line. */
+    private void release() {
+        for (String claimed : claimedLines) {
+            fallback.receive(claimed);
+        }
+        publishedId = -1;
+        reset();
+    }
+
+    private void reset() {
+        claimedId = -1;
+        claimedLines.clear();
+    }
+
+    private boolean consume(String message) {
+        if (ignorable(message)) {
+            return true;
+        } else if (message.startsWith("Eden regions: ")) {
+            return (eden = parseRegions(message, 14, true)) != null;
+        } else if (message.startsWith("Survivor regions: ")) {
+            return (survivor = parseRegions(message, 18, true)) != null;
+        } else if (message.startsWith("Old regions: ")) {
+            return (old = parseRegions(message, 13, false)) != null;
+        } else if (message.startsWith("Humongous regions: ")) {
+            return (humongous = parseRegions(message, 19, false)) != null;
+        } else if (message.startsWith("Metaspace: ")) {
+            return (metaspace = parseMetaspace(message)) != null;
+        } else if (message.startsWith(PAUSE_YOUNG)) {
+            return publish(message);
+        }
+        return false;
+    }
+
+    private static boolean ignorable(String message) {
+        return message.startsWith("  ")
+                || message.startsWith("Using ")
+                || message.startsWith("User=");
+    }
+
+    private boolean publish(String message) {
+        // Pause Young (Normal) (G1 Evacuation Pause) 777M->1M(1294M) 0.814ms
+        int typeEnd = message.indexOf(')');
+        int causeStart = message.indexOf('(', typeEnd);
+        int causeEnd = causeStart < 0 ? -1 : message.indexOf(") ", causeStart);
+        int arrow = causeEnd < 0 ? -1 : message.indexOf("->", causeEnd);
+        int sizeStart = arrow < 0 ? -1 : message.indexOf('(', arrow);
+        int sizeEnd = sizeStart < 0 ? -1 : message.indexOf(')', sizeStart);
+        if (typeEnd < 0
+                || sizeEnd < 0
+                || !message.endsWith("ms")
+                || eden == null
+                || survivor == null) {
+            return false;
+        }
+        long before = parseKBytes(message, causeEnd + 2, arrow);
+        long after = parseKBytes(message, arrow + 2, sizeStart);
+        long size = parseKBytes(message, sizeStart + 1, sizeEnd);
+        double duration = parseDouble(message, sizeEnd + 2, message.length() - 2);
+        if (before < 0 || after < 0 || size < 0 || Double.isNaN(duration)) {
+            return false;
+        }
+
+        String type = message.substring(PAUSE_YOUNG.length(), typeEnd);
+        GCCause cause = GCCauses.get(message.substring(causeStart, causeEnd + 1));
+        G1GCPauseEvent event;
+        if (type.equals("Concurrent Start")) {
+            event = new G1YoungInitialMark(timeStamp, cause, duration / 1000);
+        } else if (type.equals("Mixed")) {
+            event = new G1Mixed(timeStamp, cause, duration / 1000);
+        } else if (type.equals("Normal") || type.equals("Prepare Mixed")) {
+            event = new G1Young(timeStamp, cause, duration / 1000);
+        } else {
+            return false;
+        }
+        MemoryPoolSummary heap = new MemoryPoolSummary(before, size, after, size);
+        if (regionSize > 0) {
+            event.addMemorySummary(
+                    new MemoryPoolSummary(
+                            eden.getBefore() * regionSize,
+                            eden.getBefore() * regionSize,
+                            eden.getAfter() * regionSize,
+                            eden.getAssigned() * regionSize),
+                    new SurvivorMemoryPoolSummary(
+                            survivor.getBefore() * regionSize,
+                            survivor.getAfter() * regionSize,
+                            survivor.getAssigned() * regionSize),
+                    heap);
+        } else {
+            // the region size is only logged at startup, pools are unknown when tailing from the
+            // end
+            event.addMemorySummary(null, null, heap);
+        }
+        if (metaspace != null) {
+            event.addPermOrMetaSpaceRecord(metaspace);
+        }
+        event.addRegionSummary(eden, survivor, old, humongous, new RegionSummary(-1, -1, -1));
+        channel.publish(ChannelName.G1GC_PARSER_OUTBOX, event);
+        publishedId = claimedId;
+        reset();
+        return true;
+    }
+
+    /** Parse {@code 776->0(776)}, the assigned count of old and humongous is the after one. */
+    private static RegionSummary parseRegions(String message, int start, boolean assigned) {
+        int arrow = message.indexOf("->", start);
+        if (arrow < 0) {
+            return null;
+        }
+        int before = (int) parseLong(message, start, arrow);
+        int afterEnd = assigned ? message.indexOf('(', arrow) : message.length();
+        if (afterEnd < 0 || (assigned && !message.endsWith(")"))) {
+            return null;
+        }
+        int after = (int) parseLong(message, arrow + 2, afterEnd);
+        int count = assigned ? (int) parseLong(message, afterEnd + 1, message.length() - 1) : after;
+        if (before < 0 || after < 0 || count < 0) {
+            return null;
+        }
+        return new RegionSummary(before, after, count);
+    }
+
+    /** Parse {@code Metaspace: 6320K(6784K)->6320K(6784K) ...}. */
+    private static MemoryPoolSummary parseMetaspace(String message) {
+        int start = 11;
+        int sizeStart = message.indexOf('(', start);
+        int arrow = message.indexOf(")->", sizeStart);
+        if (sizeStart < 0 || arrow < 0) {
+            return null;
+        }
+        int afterSizeStart = message.indexOf('(', arrow);
+        int afterSizeEnd = message.indexOf(')', afterSizeStart);
+        if (afterSizeStart < 0 || afterSizeEnd < 0) {
+            return null;
+        }
+        long before = parseKBytes(message, start, sizeStart);
+        long sizeBefore = parseKBytes(message, sizeStart + 1, arrow);
+        long after = parseKBytes(message, arrow + 3, afterSizeStart);
+        long sizeAfter = parseKBytes(message, afterSizeStart + 1, afterSizeEnd);
+        if (before < 0 || sizeBefore < 0 || after < 0 || sizeAfter < 0) {
+            return null;
+        }
+        return new MemoryPoolSummary(before, sizeBefore, after, sizeAfter);
+    }
+
+    private static long parseRegionSize(String line) {
+        int start = line.indexOf("Heap region size: ");
+        if (start < 0) {
+            start = line.indexOf("Heap Region Size: ");
+        }
+        return start < 0 ? -1 : parseKBytes(line, start + 18, line.length());
+    }
+
+    /** Parse a size like {@code 777M} into kilobytes, or -1. */
+    static long parseKBytes(String s, int start, int end) {
+        if (end - start < 2) {
+            return -1;
+        }
+        long value = parseLong(s, start, end - 1);
+        if (value < 0) {
+            return -1;
+        }
+        switch (s.charAt(end - 1)) {
+            case 'B':
+                return value / 1024;
+            case 'K':
+                return value;
+            case 'M':
+                return value * 1024;
+            case 'G':
+                return value * 1024 * 1024;
+            default:
+                return -1;
+        }
+    }
+
+    static long parseLong(String s, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static double parseDouble(String s, int start, int end) {
+        int dot = s.indexOf('.', start);
+        if (dot < 0 || dot >= end) {
+            long value = parseLong(s, start, end);
+            return value < 0 ? Double.NaN : value;
+        }
+        long integer = parseLong(s, start, dot);
+        long fraction = parseLong(s, dot + 1, end);
+        if (integer < 0 || fraction < 0) {
+            return Double.NaN;
+        }
+        return integer + fraction / Math.pow(10, end - dot - 1);
+    }
+
+    @Override
+    public Set<EventSource> eventsProduced() {
+        return fallback.eventsProduced();
+    }
+
+    @Override
+    public void publishTo(JVMEventChannel channel) {
+        this.channel = channel;
+        fallback.publishTo(channel);
+    }
+
+    @Override
+    public void diary(Diary diary) {
+        fallback.diary(diary);
+    }
+
+    @Override
+    public boolean accepts(Diary diary) {
+        return fallback.accepts(diary);
+    }
+
+    @Override
+    public ChannelName channel() {
+        return fallback.channel();
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
 
 public class G1GCEventHandler extends AbstractJVMEventHandler {
     private static final Logger LOG = LoggerFactory.getLogger(G1GCEventHandler.class);
@@ -38,9 +39,16 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
         super(file, diary);
     }
 
+    public G1GCEventHandler(File file, Diary diary, Config config) {
+        super(file, diary, config);
+    }
+
     @Override
     protected List<DataSourceParser> loadParsers() {
         if (diary.isUnifiedLogging()) {
+            if (config.isFastG1Parser()) {
+                return Collections.singletonList(new FastUnifiedG1GCParser());
+            }
             return Collections.singletonList(new UnifiedG1GCParser());
         } else {
             return Collections.singletonList(new PreUnifiedG1GCParser());
@@ -60,14 +68,17 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
         final String category = parseCategory(event);
         LOG.debug("Collect G1GCEvent {} ", category);
 
-        GC_EVENT_DURATION.attach(this, path, host, category).observe(event.getDuration());
-        GC_EVENT_LAST_MINUTE_DURATION.attach(this, path, host).observe(event.getDuration());
+        metrics.get(GC_EVENT_DURATION, category).observe(event.getDuration());
+        metrics.get(GC_EVENT_LAST_MINUTE_DURATION).observe(event.getDuration());
+        metrics.get(GC_EVENT_WINDOW_DURATION).observe(event.getDuration(), eventTime(event));
 
         if (event instanceof G1GCPauseEvent) {
-            GC_EVENT_PAUSE_DURATION.attach(this, path, host, category).observe(event.getDuration());
-            GC_EVENT_LAST_MINUTE_PAUSE_DURATION
-                    .attach(this, path, host)
-                    .observe(event.getDuration());
+            metrics.get(GC_EVENT_PAUSE_DURATION, category)
+                    .observe(event.getDuration(), exemplar(event, event.getDuration()));
+            metrics.get(GC_EVENT_LAST_MINUTE_PAUSE_DURATION).observe(event.getDuration());
+            rollup.pause(category, event.getDuration(), hostTime(event));
+            metrics.get(GC_EVENT_WINDOW_PAUSE_DURATION)
+                    .observe(event.getDuration(), eventTime(event));
             recordG1GCPauseEvent((G1GCPauseEvent) event);
         }
     }
@@ -123,17 +134,14 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
 
         MemoryPoolSummary heapSummary = event.getHeap();
         if (heapSummary != null) {
-            HEAP_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_OCCUPANCY_AFTER_COLLECTION)
                     .set(heapSummary.getOccupancyAfterCollection() * 1024);
-            HEAP_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            rollup.heapOccupancy(heapSummary.getOccupancyAfterCollection() * 1024);
+            metrics.get(HEAP_SIZE_AFTER_COLLECTION)
                     .set(heapSummary.getSizeAfterCollection() * 1024);
-            HEAP_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_SIZE_BEFORE_COLLECTION)
                     .set(heapSummary.getSizeBeforeCollection() * 1024);
-            HEAP_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(HEAP_OCCUPANCY_BEFORE_COLLECTION)
                     .set(heapSummary.getOccupancyBeforeCollection() * 1024);
         }
 
@@ -145,26 +153,22 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
         MemoryPoolSummary eden = event.getEden();
         if (eden != null) {
             if (eden.getOccupancyAfterCollection() >= 0) {
-                G1_EDEN_OCCUPANCY_AFTER_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_EDEN_OCCUPANCY_AFTER_COLLECTION)
                         .set(eden.getOccupancyAfterCollection() * 1024);
                 youngOccupancyAfterCollection += eden.getOccupancyAfterCollection() * 1024;
             }
             if (eden.getOccupancyBeforeCollection() >= 0) {
-                G1_EDEN_OCCUPANCY_BEFORE_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_EDEN_OCCUPANCY_BEFORE_COLLECTION)
                         .set(eden.getOccupancyBeforeCollection() * 1024);
                 youngOccupancyBeforeCollection += eden.getOccupancyBeforeCollection() * 1024;
             }
             if (eden.getSizeBeforeCollection() > 0) {
-                G1_EDEN_SIZE_BEFORE_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_EDEN_SIZE_BEFORE_COLLECTION)
                         .set(eden.getSizeBeforeCollection() * 1024);
                 youngSizeBeforeCollection += eden.getSizeBeforeCollection() * 1024;
             }
             if (eden.getSizeAfterCollection() > 0) {
-                G1_EDEN_SIZE_AFTER_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_EDEN_SIZE_AFTER_COLLECTION)
                         .set(eden.getSizeAfterCollection() * 1024);
                 youngSizeAfterCollection += eden.getSizeAfterCollection() * 1024;
             }
@@ -173,20 +177,18 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
         SurvivorMemoryPoolSummary survivor = event.getSurvivor();
         if (survivor != null) {
             if (survivor.getOccupancyAfterCollection() >= 0) {
-                G1_SURVIVOR_HEAP_OCCUPANCY_AFTER_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_SURVIVOR_HEAP_OCCUPANCY_AFTER_COLLECTION)
                         .set(survivor.getOccupancyAfterCollection() * 1024);
                 youngOccupancyAfterCollection += survivor.getOccupancyAfterCollection() * 1024;
             }
             if (survivor.getOccupancyBeforeCollection() >= 0) {
-                G1_SURVIVOR_HEAP_OCCUPANCY_BEFORE_COLLECTION
-                        .attach(this, path, host)
+                metrics.get(G1_SURVIVOR_HEAP_OCCUPANCY_BEFORE_COLLECTION)
                         .set(survivor.getOccupancyBeforeCollection() * 1024);
 
                 youngOccupancyBeforeCollection += survivor.getOccupancyBeforeCollection() * 1024;
             }
             if (survivor.getSize() > 0) {
-                G1_SURVIVOR_SIZE.attach(this, path, host).set(survivor.getSize() * 1024);
+                metrics.get(G1_SURVIVOR_SIZE).set(survivor.getSize() * 1024);
                 youngSizeBeforeCollection += survivor.getSize() * 1024;
                 youngSizeAfterCollection += survivor.getSize() * 1024;
             }
@@ -194,35 +196,27 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
 
         // young generation
         if (youngOccupancyBeforeCollection >= 0) {
-            YOUNG_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
-                    .set(youngOccupancyBeforeCollection);
+            metrics.get(YOUNG_OCCUPANCY_BEFORE_COLLECTION).set(youngOccupancyBeforeCollection);
         }
         if (youngOccupancyAfterCollection >= 0) {
-            YOUNG_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
-                    .set(youngOccupancyAfterCollection);
+            metrics.get(YOUNG_OCCUPANCY_AFTER_COLLECTION).set(youngOccupancyAfterCollection);
         }
         if (youngSizeBeforeCollection >= 0) {
-            YOUNG_SIZE_BEFORE_COLLECTION.attach(this, path, host).set(youngSizeBeforeCollection);
+            metrics.get(YOUNG_SIZE_BEFORE_COLLECTION).set(youngSizeBeforeCollection);
         }
         if (youngSizeAfterCollection >= 0) {
-            YOUNG_SIZE_AFTER_COLLECTION.attach(this, path, host).set(youngSizeAfterCollection);
+            metrics.get(YOUNG_SIZE_AFTER_COLLECTION).set(youngSizeAfterCollection);
         }
 
         MemoryPoolSummary metaspace = event.getPermOrMetaspace();
         if (metaspace != null) {
-            METASPACE_OCCUPANCY_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_OCCUPANCY_AFTER_COLLECTION)
                     .set(metaspace.getOccupancyAfterCollection() * 1024);
-            METASPACE_OCCUPANCY_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_OCCUPANCY_BEFORE_COLLECTION)
                     .set(metaspace.getOccupancyBeforeCollection() * 1024);
-            METASPACE_SIZE_BEFORE_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_SIZE_BEFORE_COLLECTION)
                     .set(metaspace.getSizeBeforeCollection() * 1024);
-            METASPACE_SIZE_AFTER_COLLECTION
-                    .attach(this, path, host)
+            metrics.get(METASPACE_SIZE_AFTER_COLLECTION)
                     .set(metaspace.getSizeAfterCollection() * 1024);
         }
 
@@ -232,67 +226,61 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
         RegionSummary edenRegion = event.getEdenRegionSummary();
         if (edenRegion != null) {
             if (edenRegion.getBefore() >= 0) {
-                G1_EDEN_REGION_BEFORE.attach(this, path, host).set(edenRegion.getBefore());
+                metrics.get(G1_EDEN_REGION_BEFORE).set(edenRegion.getBefore());
             }
             if (edenRegion.getAfter() >= 0) {
-                G1_EDEN_REGION_AFTER.attach(this, path, host).set(edenRegion.getAfter());
+                metrics.get(G1_EDEN_REGION_AFTER).set(edenRegion.getAfter());
             }
             if (edenRegion.getAssigned() >= 0) {
-                G1_EDEN_REGION_ASSIGN.attach(this, path, host).set(edenRegion.getAssigned());
+                metrics.get(G1_EDEN_REGION_ASSIGN).set(edenRegion.getAssigned());
             }
         }
         RegionSummary survivorRegion = event.getSurvivorRegionSummary();
         if (survivorRegion != null) {
             if (survivorRegion.getBefore() >= 0) {
-                G1_SURVIVOR_REGION_BEFORE.attach(this, path, host).set(survivorRegion.getBefore());
+                metrics.get(G1_SURVIVOR_REGION_BEFORE).set(survivorRegion.getBefore());
             }
             if (survivorRegion.getAfter() >= 0) {
-                G1_SURVIVOR_REGION_AFTER.attach(this, path, host).set(survivorRegion.getAfter());
+                metrics.get(G1_SURVIVOR_REGION_AFTER).set(survivorRegion.getAfter());
             }
             if (survivorRegion.getAssigned() >= 0) {
-                G1_SURVIVOR_REGION_ASSIGN
-                        .attach(this, path, host)
-                        .set(survivorRegion.getAssigned());
+                metrics.get(G1_SURVIVOR_REGION_ASSIGN).set(survivorRegion.getAssigned());
             }
         }
         RegionSummary oldRegion = event.getOldRegionSummary();
         if (oldRegion != null) {
             if (oldRegion.getBefore() >= 0) {
-                G1_OLD_REGION_BEFORE.attach(this, path, host).set(oldRegion.getBefore());
+                metrics.get(G1_OLD_REGION_BEFORE).set(oldRegion.getBefore());
             }
             if (oldRegion.getAfter() >= 0) {
-                G1_OLD_REGION_AFTER.attach(this, path, host).set(oldRegion.getAfter());
+                metrics.get(G1_OLD_REGION_AFTER).set(oldRegion.getAfter());
             }
             if (oldRegion.getAssigned() >= 0) {
-                G1_OLD_REGION_ASSIGN.attach(this, path, host).set(oldRegion.getAssigned());
+                metrics.get(G1_OLD_REGION_ASSIGN).set(oldRegion.getAssigned());
             }
         }
         RegionSummary humongousRegion = event.getHumongousRegionSummary();
         if (humongousRegion != null) {
             if (humongousRegion.getBefore() >= 0) {
-                G1_HUMONGOUS_REGION_BEFORE
-                        .attach(this, path, host)
-                        .set(humongousRegion.getBefore());
+                metrics.get(G1_HUMONGOUS_REGION_BEFORE).set(humongousRegion.getBefore());
             }
             if (humongousRegion.getAfter() >= 0) {
-                G1_HUMONGOUS_REGION_AFTER.attach(this, path, host).set(humongousRegion.getAfter());
+                metrics.get(G1_HUMONGOUS_REGION_AFTER).set(humongousRegion.getAfter());
             }
             if (humongousRegion.getAssigned() >= 0) {
-                G1_HUMONGOUS_REGION_ASSIGN
-                        .attach(this, path, host)
-                        .set(humongousRegion.getAssigned());
+                metrics.get(G1_HUMONGOUS_REGION_ASSIGN).set(humongousRegion.getAssigned());
             }
         }
         RegionSummary archiveRegion = event.getArchiveRegionSummary();
         if (archiveRegion != null) {
             if (archiveRegion.getBefore() >= 0) {
-                G1_ARCHIVE_REGION_BEFORE.attach(this, path, host).set(archiveRegion.getBefore());
+                metrics.get(G1_ARCHIVE_REGION_BEFORE).set(archiveRegion.getBefore());
             }
             if (archiveRegion.getAfter() >= 0) {
-                G1_ARCHIVE_REGION_AFTER.attach(this, path, host).set(archiveRegion.getAfter());
+                metrics.get(G1_ARCHIVE_REGION_AFTER).set(archiveRegion.getAfter());
             }
             if (archiveRegion.getAssigned() >= 0) {
-                G1_ARCHIVE_REGION_ASSIGN.attach(this, path, host).set(archiveRegion.getAssigned());
+                metrics.get(G1_ARCHIVE_REGION_ASSIGN).set(archiveRegion.getAssigned());
             }
         }
     }
@@ -300,35 +288,31 @@ public class G1GCEventHandler extends AbstractJVMEventHandler {
     private void recordReferenceSummary(ReferenceGCSummary referenceGCSummary) {
         if (referenceGCSummary != null) {
             int softReferenceCount = referenceGCSummary.getSoftReferenceCount();
-            SOFT_REFERENCE_COUNT.attach(this, path, host).set(softReferenceCount);
+            metrics.get(SOFT_REFERENCE_COUNT).set(softReferenceCount);
             double softReferencePauseTime = referenceGCSummary.getSoftReferencePauseTime();
-            SOFT_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(softReferencePauseTime);
+            metrics.get(SOFT_REFERENCE_PAUSE_TIME).observe(softReferencePauseTime);
 
             int weakReferenceCount = referenceGCSummary.getWeakReferenceCount();
-            WEAK_REFERENCE_COUNT.attach(this, path, host).set(weakReferenceCount);
+            metrics.get(WEAK_REFERENCE_COUNT).set(weakReferenceCount);
             double weakReferencePauseTime = referenceGCSummary.getWeakReferencePauseTime();
-            WEAK_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(weakReferencePauseTime);
+            metrics.get(WEAK_REFERENCE_PAUSE_TIME).observe(weakReferencePauseTime);
 
             int finalReferenceCount = referenceGCSummary.getFinalReferenceCount();
-            FINAL_REFERENCE_COUNT.attach(this, path, host).set(finalReferenceCount);
+            metrics.get(FINAL_REFERENCE_COUNT).set(finalReferenceCount);
             double finalReferencePauseTime = referenceGCSummary.getFinalReferencePauseTime();
-            FINAL_REFERENCE_PAUSE_TIME.attach(this, path, host).observe(finalReferencePauseTime);
+            metrics.get(FINAL_REFERENCE_PAUSE_TIME).observe(finalReferencePauseTime);
 
             int phantomReferenceCount = referenceGCSummary.getPhantomReferenceCount();
-            PHANTOM_REFERENCE_COUNT.attach(this, path, host).set(phantomReferenceCount);
+            metrics.get(PHANTOM_REFERENCE_COUNT).set(phantomReferenceCount);
             int phantomReferenceFreedCount = referenceGCSummary.getPhantomReferenceFreedCount();
-            PHANTOM_REFERENCE_FREE_COUNT.attach(this, path, host).set(phantomReferenceFreedCount);
+            metrics.get(PHANTOM_REFERENCE_FREE_COUNT).set(phantomReferenceFreedCount);
             double phantomReferencePauseTime = referenceGCSummary.getPhantomReferencePauseTime();
-            PHANTOM_REFERENCE_PAUSE_TIME
-                    .attach(this, path, host)
-                    .observe(phantomReferencePauseTime);
+            metrics.get(PHANTOM_REFERENCE_PAUSE_TIME).observe(phantomReferencePauseTime);
 
             int jniWeakReferenceCount = referenceGCSummary.getJniWeakReferenceCount();
-            JNI_WEAK_REFERENCE_COUNT.attach(this, path, host).set(jniWeakReferenceCount);
+            metrics.get(JNI_WEAK_REFERENCE_COUNT).set(jniWeakReferenceCount);
             double jniWeakReferencePauseTime = referenceGCSummary.getJniWeakReferencePauseTime();
-            JNI_WEAK_REFERENCE_PAUSE_TIME
-                    .attach(this, path, host)
-                    .observe(jniWeakReferencePauseTime);
+            metrics.get(JNI_WEAK_REFERENCE_PAUSE_TIME).observe(jniWeakReferencePauseTime);
         }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.parser;
+
+import com.microsoft.gctoolkit.event.jvm.JVMEvent;
+import com.microsoft.gctoolkit.time.DateTimeStamp;
+import io.prometheus.client.Collector;
+import io.prometheus.client.exemplars.Exemplar;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * First line of the recent GC ids of a unified log, so an event can be traced back to it. Events
+ * carry no GC id, an event belongs to the latest GC started at or before its time stamp, the lowest
+ * id wins among GCs started at the same time.
+ */
+class GCCycleIndex {
+    private static final int CAPACITY = 64;
+    private final Deque<Cycle> cycles = new ArrayDeque<>();
+    private long lastId = -1;
+
+    synchronized void line(String line, long offset) {
+        int start = line.indexOf("GC(");
+        if (start < 0 || offset < 0) {
+            return;
+        }
+        long id = 0;
+        int i = start + 3;
+        for (; i < line.length() && Character.isDigit(line.charAt(i)); ++i) {
+            id = id * 10 + (line.charAt(i) - '0');
+        }
+        if (i == start + 3 || i == line.length() || line.charAt(i) != ')' || id <= lastId) {
+            return;
+        }
+        lastId = id;
+        DateTimeStamp time = DateTimeStamp.fromGCLogLine(line);
+        if (time == null) {
+            return;
+        }
+        cycles.addLast(new Cycle(id, offset, time));
+        if (cycles.size() > CAPACITY) {
+            cycles.removeFirst();
+        }
+    }
+
+    /** Forget the cycles of a rotated file, the next one may restart the ids. */
+    synchronized void clear() {
+        cycles.clear();
+        lastId = -1;
+    }
+
+    /** Exemplar of {@code value} pointing at the first line of the GC of {@code event}. */
+    synchronized Exemplar exemplar(JVMEvent event, double value) {
+        DateTimeStamp time = event.getDateTimeStamp();
+        if (time == null || cycles.isEmpty()) {
+            return null;
+        }
+        Cycle found = null;
+        for (Cycle cycle : cycles) {
+            if (cycle.time.compareTo(time) <= 0
+                    && (found == null || cycle.time.compareTo(found.time) > 0)) {
+                found = cycle;
+            }
+        }
+        if (found == null) {
+            return null;
+        }
+        String gcId = Long.toString(found.id);
+        String offset = Long.toString(found.offset);
+        if (time.hasDateStamp()) {
+            return new Exemplar(
+                    value, (long) time.toEpochInMillis(), "gc_id", gcId, "offset", offset);
+        }
+        return new Exemplar(
+                value,
+                "gc_id",
+                gcId,
+                "offset",
+                offset,
+                "uptime",
+                Collector.doubleToGoString(time.toSeconds()));
+    }
+
+    private static class Cycle {
+        private final long id;
+        private final long offset;
+        private final DateTimeStamp time;
+
+        Cycle(long id, long offset, DateTimeStamp time) {
+            this.id = id;
+            this.offset = offset;
+            this.time = time;
+        }
+    }
+}
@@ -15,28 +15,49 @@
  */
 package prometheus.exporter.jgc.parser;
 
+import static prometheus.exporter.jgc.metric.MetricRegistry.PARSER_DETECT_DURATION;
+
 import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
 import prometheus.exporter.jgc.tailer.TailerListener;
+import prometheus.exporter.jgc.util.OperatingSystem;
 
 public class GCEventHandlerManager implements TailerListener {
     private static final Logger LOG = LoggerFactory.getLogger(GCEventHandlerManager.class);
 
     private final Map<File, AbstractJVMEventHandler> registry;
+    private final Config config;
+    private final String host;
 
     public GCEventHandlerManager() {
+        this(new Config());
+    }
+
+    public GCEventHandlerManager(Config config) {
         this.registry = new ConcurrentHashMap<>();
+        this.config = config;
+        this.host = OperatingSystem.getLocalHostName();
     }
 
     @Override
     public void onOpen(File file) {
-        registry.computeIfAbsent(file, f -> new GCEventHandlerMatcher(file).find());
+        registry.computeIfAbsent(file, this::detect);
         LOG.info("Register file: {}", file);
     }
 
+    private AbstractJVMEventHandler detect(File file) {
+        long start = System.nanoTime();
+        try {
+            return new GCEventHandlerMatcher(file).find(config);
+        } finally {
+            PARSER_DETECT_DURATION.attach(this, host).observe((System.nanoTime() - start) / 1e9);
+        }
+    }
+
     @Override
     public void onClose(File file) {
         AbstractJVMEventHandler handler = registry.remove(file);
@@ -48,14 +69,30 @@ public class GCEventHandlerManager implements TailerListener {
 
     @Override
     public void onRotate(File file) {
-        // not clean metric
-        registry.remove(file);
+        AbstractJVMEventHandler handler = registry.get(file);
+        if (handler != null) {
+            handler.reset();
+        }
         LOG.info("Rotate file: {}", file);
     }
 
+    @Override
+    public void onLag(File file, long bytes) {
+        AbstractJVMEventHandler handler = registry.get(file);
+        if (handler != null) {
+            handler.lag(bytes);
+        }
+    }
+
     @Override
     public void onRead(File file, String line) {
         LOG.debug("Tailing file: {} >>> {}", file, line);
         registry.computeIfPresent(file, (f, handler) -> handler.consume(line));
     }
+
+    @Override
+    public void onRead(File file, String line, long offset) {
+        LOG.debug("Tailing file: {} >>> {}", file, line);
+        registry.computeIfPresent(file, (f, handler) -> handler.consume(line, offset));
+    }
 }
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
 
 public class GCEventHandlerMatcher extends GCLogFile {
     private static final Logger LOG = LoggerFactory.getLogger(GCEventHandlerMatcher.class);
@@ -99,26 +100,30 @@ public class GCEventHandlerMatcher extends GCLogFile {
     }
 
     public AbstractJVMEventHandler find() {
+        return find(new Config());
+    }
+
+    public AbstractJVMEventHandler find(Config config) {
         try {
             Diary diary = super.diary();
             if (diary.isG1GC()) {
                 LOG.info("{} is G1", path);
-                return new G1GCEventHandler(path.toFile(), diary);
+                return new G1GCEventHandler(path.toFile(), diary, config);
             } else if (diary.isZGC()) {
                 LOG.info("{} is ZGC", path);
-                return new ZGCEventHandler(path.toFile(), diary);
+                return new ZGCEventHandler(path.toFile(), diary, config);
             } else if (diary.isCMS() || diary.isParNew()) {
                 LOG.info("{} is CMS", path);
-                return new ClassicGCEventHandler(path.toFile(), diary);
+                return new ClassicGCEventHandler(path.toFile(), diary, config);
             } else if (diary.isDefNew()) {
                 LOG.info("{} is defnew", path);
-                return new ClassicGCEventHandler(path.toFile(), diary);
+                return new ClassicGCEventHandler(path.toFile(), diary, config);
             } else if (diary.isSerialFull()) {
                 LOG.info("{} is serial", path);
-                return new ClassicGCEventHandler(path.toFile(), diary);
+                return new ClassicGCEventHandler(path.toFile(), diary, config);
             } else if (diary.isPSOldGen() || diary.isPSYoung()) {
                 LOG.info("{} is parallel", path);
-                return new ClassicGCEventHandler(path.toFile(), diary);
+                return new ClassicGCEventHandler(path.toFile(), diary, config);
             }
         } catch (IOException ioe) {
             LOG.error("Find GCEventHandler error: {}", path, ioe);
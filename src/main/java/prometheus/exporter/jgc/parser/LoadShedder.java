@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.parser;
+
+import java.util.HashSet;
+import java.util.Set;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Skip low value lines of a log while it is overloaded, that is when more than {@code shedLagBytes}
+ * of it are unread or the exporter uses more than {@code shedCpuLoad} of the cpu. Low value lines
+ * are unified logging lines at debug or trace level, or with one of {@code shedTags}, such as phase
+ * details and task lines. Lines of pauses and heap summaries are kept, so pause metrics stay fresh
+ * during log storms.
+ */
+class LoadShedder {
+    private static final long CPU_SAMPLE_INTERVAL = 1_000;
+    private static volatile long cpuSampledAt;
+    private static volatile double cpuLoad;
+    private final long lagBytes;
+    private final double maxCpuLoad;
+    private final Set<String> decorations;
+    private volatile long lag;
+
+    LoadShedder(Config config) {
+        this.lagBytes = config.getShedLagBytes();
+        this.maxCpuLoad = config.getShedCpuLoad();
+        this.decorations = new HashSet<>(config.getShedTags());
+        this.decorations.add("debug");
+        this.decorations.add("trace");
+    }
+
+    void lag(long bytes) {
+        this.lag = bytes;
+    }
+
+    boolean shed(String line) {
+        return (lagBytes > 0 || maxCpuLoad > 0) && isLowValue(line) && isOverloaded();
+    }
+
+    boolean isOverloaded() {
+        return (lagBytes > 0 && lag > lagBytes) || (maxCpuLoad > 0 && cpuLoad() > maxCpuLoad);
+    }
+
+    /** Whether a decoration of the line, e.g. {@code [debug]} or {@code [gc,task ]}, is shed. */
+    boolean isLowValue(String line) {
+        int start = 0;
+        while (start < line.length() && line.charAt(start) == '[') {
+            int end = line.indexOf(']', start);
+            if (end < 0) {
+                return false;
+            }
+            if (decorations.contains(line.substring(start + 1, end).trim())) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /** Cpu usage of the exporter, sampled at most once per interval for all logs. */
+    private static double cpuLoad() {
+        long now = System.currentTimeMillis();
+        if (now - cpuSampledAt >= CPU_SAMPLE_INTERVAL) {
+            cpuSampledAt = now;
+            cpuLoad = OperatingSystem.getProcessCpuLoad();
+        }
+        return cpuLoad;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.parser;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.PARSER_ERRORS;
+import static prometheus.exporter.jgc.metric.MetricRegistry.PARSER_RECEIVE_DURATION;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.gctoolkit.message.DataSourceParser;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.metric.Distribution;
+import prometheus.exporter.jgc.metric.MetricBinding;
+
+/**
+ * Feed one parser on the pool shared by all parsers, lines keep their order through a bounded queue
+ * drained by at most one pool thread at a time. The pool has a thread per processor however many
+ * files are tailed. Without a pool, the handler lets the worker {@link #receive} each line itself.
+ */
+class ParserWorker implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(ParserWorker.class);
+    private static final int QUEUE_CAPACITY = 8192;
+    // lines drained per run, then the thread moves on to other parsers
+    private static final int BATCH_SIZE = 1024;
+    private static final String END = new String();
+    private static final ExecutorService POOL =
+            Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("parser-worker-%d")
+                            .setDaemon(true)
+                            .build());
+    private final DataSourceParser parser;
+    private final String name;
+    private final MetricBinding metrics;
+    private final BlockingQueue<String> queue;
+    private final AtomicBoolean scheduled;
+    private final CountDownLatch stopped;
+    // resolved once per generation of the binding rather than per line
+    private Distribution.Child receiveDuration;
+    private int generation;
+
+    ParserWorker(DataSourceParser parser, MetricBinding metrics) {
+        this.parser = parser;
+        this.name = parser.getClass().getSimpleName();
+        this.metrics = metrics;
+        // allocated as lines come, idle files hold no buffer
+        this.queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        this.scheduled = new AtomicBoolean();
+        this.stopped = new CountDownLatch(1);
+    }
+
+    /** Blocks while the queue is full, so a slow parser throttles the tailer. */
+    void submit(String line) {
+        try {
+            queue.put(line);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            POOL.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                String line = queue.poll();
+                if (line == null) {
+                    break;
+                }
+                if (line == END) {
+                    // stays scheduled, nothing is parsed after the end
+                    stopped.countDown();
+                    return;
+                }
+                receive(line);
+            }
+        } catch (Throwable t) {
+            LOG.error("{} worker error", name, t);
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /** Let the parser receive {@code line}, timed and with its errors counted. */
+    void receive(String line) {
+        long start = System.nanoTime();
+        try {
+            parser.receive(line);
+        } catch (Exception ex) {
+            metrics.get(PARSER_ERRORS, name).inc();
+            LOG.error("{} error: {}", name, line, ex);
+        }
+        receiveDuration().observe((System.nanoTime() - start) / 1e9);
+    }
+
+    /** The lease is renewed by the handler for each line, only evictions resolve it again. */
+    private Distribution.Child receiveDuration() {
+        int generation = metrics.generation();
+        if (receiveDuration == null || generation != this.generation) {
+            this.generation = generation;
+            receiveDuration = metrics.get(PARSER_RECEIVE_DURATION, name);
+        }
+        return receiveDuration;
+    }
+
+    /**
+     * Let the queued lines be parsed, then stop. Returns once the last line is parsed, as a parser
+     * cannot be interrupted while it receives a line.
+     */
+    void close() {
+        submit(END);
+        try {
+            stopped.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
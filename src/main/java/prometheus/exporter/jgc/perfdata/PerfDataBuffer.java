@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.perfdata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Read-only view of a memory-mapped hsperfdata file (version 2 layout), entries are indexed once
+ * and re-indexed only when the jvm appends new ones, so reading a counter is a single load.
+ */
+public class PerfDataBuffer {
+    static final int MAGIC = 0xcafec0c0;
+    static final int PROLOGUE_SIZE = 32;
+    static final byte TYPE_LONG = 'J';
+    static final byte TYPE_BYTE = 'B';
+    private static final int BYTE_ORDER_OFFSET = 4;
+    private static final int MAJOR_VERSION_OFFSET = 5;
+    private static final int ACCESSIBLE_OFFSET = 7;
+    private static final int ENTRY_OFFSET_OFFSET = 24;
+    private static final int NUM_ENTRIES_OFFSET = 28;
+    private final File file;
+    private final Object fileKey;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> longs;
+    private final Map<String, String> strings;
+    private int numEntries;
+
+    public PerfDataBuffer(File file) throws IOException {
+        this.file = file;
+        this.fileKey = fileKey(file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.limit() < PROLOGUE_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a hsperfdata file: " + file);
+        }
+        if (buffer.get(MAJOR_VERSION_OFFSET) != 2) {
+            throw new IOException("Unsupported hsperfdata version: " + file);
+        }
+        buffer.order(
+                buffer.get(BYTE_ORDER_OFFSET) == 0
+                        ? ByteOrder.BIG_ENDIAN
+                        : ByteOrder.LITTLE_ENDIAN);
+        this.longs = new HashMap<>();
+        this.strings = new HashMap<>();
+    }
+
+    /** Index entries appended since the last call, returns true if any were found. */
+    public boolean refresh() {
+        if (buffer.get(ACCESSIBLE_OFFSET) == 0) {
+            return false;
+        }
+        int entries = buffer.getInt(NUM_ENTRIES_OFFSET);
+        if (entries == numEntries) {
+            return false;
+        }
+        int offset = buffer.getInt(ENTRY_OFFSET_OFFSET);
+        for (int i = 0; i < entries; ++i) {
+            int entryLength = buffer.getInt(offset);
+            if (entryLength <= 0 || offset + entryLength > buffer.limit()) {
+                break;
+            }
+            if (i >= numEntries) {
+                index(offset);
+            }
+            offset += entryLength;
+        }
+        numEntries = entries;
+        return true;
+    }
+
+    private void index(int entry) {
+        int nameOffset = buffer.getInt(entry + 4);
+        int vectorLength = buffer.getInt(entry + 8);
+        byte type = buffer.get(entry + 12);
+        int dataOffset = buffer.getInt(entry + 16);
+        String name = readString(entry + nameOffset, dataOffset - nameOffset);
+        if (type == TYPE_LONG && vectorLength == 0) {
+            longs.put(name, entry + dataOffset);
+        } else if (type == TYPE_BYTE && vectorLength > 0) {
+            // strings are constant for the counters we use, decode them once
+            strings.put(name, readString(entry + dataOffset, vectorLength));
+        }
+    }
+
+    private String readString(int offset, int maxLength) {
+        int length = 0;
+        while (length < maxLength && buffer.get(offset + length) != 0) {
+            ++length;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Absolute position of a long counter, or -1 if absent. */
+    public int position(String name) {
+        Integer position = longs.get(name);
+        return position == null ? -1 : position;
+    }
+
+    public long getLong(int position) {
+        return buffer.getLong(position);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        int position = position(name);
+        return position < 0 ? defaultValue : buffer.getLong(position);
+    }
+
+    public String getString(String name) {
+        return strings.get(name);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Whether the path now names another file than the mapped one, e.g. a restarted jvm reusing the
+     * pid. The mapping keeps the unlinked file alive, so its key cannot be reused meanwhile.
+     */
+    public boolean isReplaced() {
+        try {
+            return !Objects.equals(fileKey, fileKey(file));
+        } catch (IOException ex) {
+            // removed, the next scan drops it
+            return false;
+        }
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        BasicFileAttributes attributes =
+                Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+}
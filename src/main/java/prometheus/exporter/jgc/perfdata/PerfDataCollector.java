@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.perfdata;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import prometheus.exporter.jgc.metric.Metric;
+import prometheus.exporter.jgc.metric.MetricBinding;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/** Copy the gc counters of one hsperfdata file into metrics. */
+public class PerfDataCollector {
+    private final PerfDataBuffer buffer;
+    private final String path;
+    private final String host;
+    private final List<BooleanSupplier> bindings;
+    private final Map<String, long[]> lastValues;
+    private final MetricBinding metrics;
+
+    public PerfDataCollector(File file) throws IOException {
+        this.buffer = new PerfDataBuffer(file);
+        this.path = file.getPath();
+        this.host = OperatingSystem.getLocalHostName();
+        this.bindings = new ArrayList<>();
+        this.lastValues = new HashMap<>();
+        this.metrics = MetricBinding.forPath(this, path, host);
+    }
+
+    public void update() {
+        // children are bound once, an evicted collector binds them again
+        boolean evicted = metrics.touch();
+        if (buffer.refresh() || evicted) {
+            bind();
+        }
+        // the children are updated directly, so the version only moves when some value did
+        boolean changed = false;
+        for (BooleanSupplier binding : bindings) {
+            changed |= binding.getAsBoolean();
+        }
+        if (changed) {
+            MetricRegistry.markChanged();
+        }
+    }
+
+    private void bind() {
+        bindings.clear();
+        double frequency = buffer.getLong("sun.os.hrt.frequency", 1);
+
+        for (int i = 0; ; ++i) {
+            String prefix = "sun.gc.collector." + i;
+            String name = buffer.getString(prefix + ".name");
+            if (name == null) {
+                break;
+            }
+            bindCounter(PERFDATA_COLLECTOR_INVOCATIONS, prefix + ".invocations", 1, name);
+            bindCounter(PERFDATA_COLLECTOR_TIME, prefix + ".time", 1 / frequency, name);
+        }
+
+        for (int i = 0; ; ++i) {
+            String prefix = "sun.gc.generation." + i;
+            String generation = buffer.getString(prefix + ".name");
+            if (generation == null) {
+                break;
+            }
+            long spaces = buffer.getLong(prefix + ".spaces", 0);
+            for (int j = 0; j < spaces; ++j) {
+                String space = buffer.getString(prefix + ".space." + j + ".name");
+                if (space == null) {
+                    continue;
+                }
+                bindGauge(PERFDATA_SPACE_USED, prefix + ".space." + j + ".used", generation, space);
+                bindGauge(
+                        PERFDATA_SPACE_CAPACITY,
+                        prefix + ".space." + j + ".capacity",
+                        generation,
+                        space);
+            }
+        }
+
+        bindGauge(PERFDATA_SPACE_USED, "sun.gc.metaspace.used", "metaspace", "metaspace");
+        bindGauge(PERFDATA_SPACE_CAPACITY, "sun.gc.metaspace.capacity", "metaspace", "metaspace");
+        bindGauge(PERFDATA_SPACE_USED, "sun.gc.compressedclassspace.used", "metaspace", "class");
+        bindGauge(
+                PERFDATA_SPACE_CAPACITY,
+                "sun.gc.compressedclassspace.capacity",
+                "metaspace",
+                "class");
+    }
+
+    private void bindGauge(
+            Metric<Gauge.Child, Gauge> metric, String name, String label, String... more) {
+        int position = buffer.position(name);
+        if (position >= 0) {
+            Gauge.Child gauge = metrics.get(metric, label, more);
+            bindings.add(
+                    () -> {
+                        double value = buffer.getLong(position);
+                        if (value == gauge.get()) {
+                            return false;
+                        }
+                        gauge.set(value);
+                        return true;
+                    });
+        }
+    }
+
+    private void bindCounter(
+            Metric<Counter.Child, Counter> metric, String name, double scale, String label) {
+        int position = buffer.position(name);
+        if (position >= 0) {
+            Counter.Child counter = metrics.get(metric, label);
+            // keep the last raw value across re-binding, so counters are not incremented twice
+            long[] last = lastValues.computeIfAbsent(name, k -> new long[1]);
+            bindings.add(
+                    () -> {
+                        long curr = buffer.getLong(position);
+                        if (curr > last[0]) {
+                            counter.inc((curr - last[0]) * scale);
+                            last[0] = curr;
+                            return true;
+                        }
+                        return false;
+                    });
+        }
+    }
+
+    public File getFile() {
+        return buffer.getFile();
+    }
+
+    /** Whether a new jvm replaced the file, its counters start over in a new collector. */
+    public boolean isReplaced() {
+        return buffer.isReplaced();
+    }
+
+    public void close() {
+        metrics.close();
+        MetricRegistry.detach(this);
+    }
+}
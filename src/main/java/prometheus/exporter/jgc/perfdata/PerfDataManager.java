@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.perfdata;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.tailer.GlobTailerSource;
+
+/** Poll hsperfdata files of running jvms, as an alternative input beside the gc log tailers. */
+public class PerfDataManager {
+    private static final Logger LOG = LoggerFactory.getLogger(PerfDataManager.class);
+    private final GlobTailerSource source;
+    private final Map<File, PerfDataCollector> registry = new HashMap<>();
+    private final Set<File> invalidFiles = new HashSet<>();
+    private final ScheduledExecutorService poller;
+
+    public PerfDataManager(Config config) {
+        this.source = new GlobTailerSource(config.getPerfDataGlobPattern());
+        this.poller =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("perfdata-poller").build());
+        this.poller.scheduleWithFixedDelay(
+                this::watch, 0, config.getWatchInterval(), TimeUnit.MILLISECONDS);
+        this.poller.scheduleWithFixedDelay(
+                this::update, 0, config.getPerfDataInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private void watch() {
+        try {
+            Set<File> matchingFiles = new HashSet<>(source.findMatchingFiles());
+            Iterator<PerfDataCollector> iterator = registry.values().iterator();
+            while (iterator.hasNext()) {
+                PerfDataCollector collector = iterator.next();
+                if (!matchingFiles.contains(collector.getFile())) {
+                    LOG.info("Unregister perfdata: {}", collector.getFile());
+                    collector.close();
+                    iterator.remove();
+                } else if (collector.isReplaced()) {
+                    // registered again below, counters restart from the new jvm
+                    LOG.info("Replaced perfdata: {}", collector.getFile());
+                    collector.close();
+                    iterator.remove();
+                }
+            }
+            invalidFiles.retainAll(matchingFiles);
+            for (File file : matchingFiles) {
+                if (registry.containsKey(file) || invalidFiles.contains(file)) {
+                    continue;
+                }
+                try {
+                    registry.put(file, new PerfDataCollector(file));
+                    LOG.info("Register perfdata: {}", file);
+                } catch (Exception ex) {
+                    LOG.warn("Ignore invalid perfdata: {}", file, ex);
+                    invalidFiles.add(file);
+                }
+            }
+        } catch (Throwable t) {
+            LOG.error("Watch perfdata failed.", t);
+        }
+    }
+
+    private void update() {
+        for (PerfDataCollector collector : registry.values()) {
+            try {
+                collector.update();
+            } catch (Throwable t) {
+                LOG.error("Update perfdata failed: {}", collector.getFile(), t);
+            }
+        }
+    }
+
+    public void close() {
+        poller.shutdown();
+        try {
+            poller.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ignore) {
+        }
+        registry.values().forEach(PerfDataCollector::close);
+        registry.clear();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.remote;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Predicate;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Push the samples of a registry to a Prometheus remote write endpoint, so jvms living shorter than
+ * a scrape interval are not lost. Samples are batched into snappy compressed requests. A failed
+ * request stays queued and is retried on the following pushes, up to {@code maxRetries} times, and
+ * the oldest request is dropped once the queue is full. The final values of a detached target are
+ * pushed right away, and everything once more on close.
+ */
+public class RemoteWriter implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteWriter.class);
+    private static final int TIMEOUT = 10_000;
+    private final CollectorRegistry registry;
+    private final Predicate<String> filter;
+    private final URL url;
+    private final int batchSize;
+    private final int queueSize;
+    private final int maxRetries;
+    private final Deque<Batch> queue;
+    private final ScheduledExecutorService pusher;
+    private final Consumer<List<Collector>> detachListener;
+    private final Counter.Child samples;
+    private final Counter.Child failed;
+    private final Counter.Child dropped;
+    private final Gauge.Child pending;
+
+    public RemoteWriter(
+            CollectorRegistry registry,
+            Predicate<String> filter,
+            String url,
+            long interval,
+            int batchSize,
+            int queueSize,
+            int maxRetries)
+            throws IOException {
+        this.registry = registry;
+        this.filter = filter;
+        this.url = new URL(url);
+        this.batchSize = batchSize;
+        this.queueSize = queueSize;
+        this.maxRetries = maxRetries;
+        this.queue = new ArrayDeque<>();
+        String host = OperatingSystem.getLocalHostName();
+        this.samples = REMOTE_WRITE_SAMPLES.attach(this, host);
+        this.failed = REMOTE_WRITE_FAILED_REQUESTS.attach(this, host);
+        this.dropped = REMOTE_WRITE_DROPPED_REQUESTS.attach(this, host);
+        this.pending = REMOTE_WRITE_PENDING_REQUESTS.attach(this, host);
+        this.detachListener = this::pushDetached;
+        MetricRegistry.addDetachListener(detachListener);
+        this.pusher =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("remote-writer").build());
+        this.pusher.scheduleWithFixedDelay(this::push, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queue the samples of the registry, then send the queue. */
+    void push() {
+        try {
+            enqueue(registry.filteredMetricFamilySamples(filter));
+            send();
+        } catch (Throwable t) {
+            LOG.error("Remote write failed.", t);
+        }
+    }
+
+    /** Runs on the detaching thread, the collectors are read there and sent by the pusher. */
+    private void pushDetached(List<Collector> collectors) {
+        List<MetricFamilySamples> families = new ArrayList<>();
+        for (Collector collector : collectors) {
+            families.addAll(collector.collect(filter));
+        }
+        enqueue(Collections.enumeration(families));
+        try {
+            pusher.execute(this::send);
+        } catch (RejectedExecutionException ignore) {
+            // closing, the queue is sent once more by close
+        }
+    }
+
+    private void enqueue(Enumeration<MetricFamilySamples> families) {
+        long now = System.currentTimeMillis();
+        WriteRequest request = new WriteRequest();
+        while (families.hasMoreElements()) {
+            for (MetricFamilySamples.Sample sample : families.nextElement().samples) {
+                request.add(
+                        sample.name,
+                        sample.labelNames,
+                        sample.labelValues,
+                        sample.value,
+                        sample.timestampMs != null ? sample.timestampMs : now);
+                if (request.size() >= batchSize) {
+                    offer(request);
+                    request = new WriteRequest();
+                }
+            }
+        }
+        if (request.size() > 0) {
+            offer(request);
+        }
+    }
+
+    private void offer(WriteRequest request) {
+        Batch batch = new Batch(Snappy.compress(request.toByteArray()), request.size());
+        synchronized (queue) {
+            if (queue.size() >= queueSize) {
+                queue.removeFirst();
+                dropped.inc();
+            }
+            queue.addLast(batch);
+            pending.set(queue.size());
+        }
+    }
+
+    /** Only called from the pusher, or on close once it stopped. */
+    private void send() {
+        while (true) {
+            Batch batch;
+            synchronized (queue) {
+                batch = queue.peekFirst();
+            }
+            if (batch == null) {
+                return;
+            }
+            int status = post(batch.body);
+            if (status / 100 == 2) {
+                samples.inc(batch.samples);
+                remove(batch);
+                continue;
+            }
+            failed.inc();
+            // other client errors fail again on retry
+            if (status / 100 == 4 && status != 429 || ++batch.attempts > maxRetries) {
+                LOG.warn(
+                        "Drop remote write request of {} samples, status {}",
+                        batch.samples,
+                        status);
+                if (remove(batch)) {
+                    dropped.inc();
+                }
+                continue;
+            }
+            return;
+        }
+    }
+
+    private boolean remove(Batch batch) {
+        synchronized (queue) {
+            boolean removed = queue.remove(batch);
+            pending.set(queue.size());
+            return removed;
+        }
+    }
+
+    /** Status of the response, -1 when there was none. */
+    private int post(byte[] body) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/x-protobuf");
+            connection.setRequestProperty("Content-Encoding", "snappy");
+            connection.setRequestProperty("User-Agent", "jgc_exporter");
+            connection.setRequestProperty("X-Prometheus-Remote-Write-Version", "0.1.0");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            // drain the response, so the connection is kept alive
+            try (InputStream in =
+                    status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                if (in != null) {
+                    in.readAllBytes();
+                }
+            }
+            return status;
+        } catch (IOException ex) {
+            LOG.warn("Remote write to {} failed: {}", url, ex.toString());
+            return -1;
+        }
+    }
+
+    /** Push everything once more, a job that ended keeps its final values. */
+    @Override
+    public void close() {
+        MetricRegistry.removeDetachListener(detachListener);
+        pusher.shutdown();
+        try {
+            pusher.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignore) {
+        }
+        push();
+        MetricRegistry.detach(this);
+    }
+
+    private static class Batch {
+        private final byte[] body;
+        private final int samples;
+        private int attempts;
+
+        private Batch(byte[] body, int samples) {
+            this.body = body;
+            this.samples = samples;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Snappy block format compressor, as required by remote write. Matches of at least 4 bytes are
+ * found through a hash table of the last position of each 4-byte sequence, within 64KB blocks.
+ */
+final class Snappy {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int HASH_BITS = 14;
+
+    private Snappy() {}
+
+    static byte[] compress(byte[] input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 16);
+        writeVarint(out, input.length);
+        int[] table = new int[1 << HASH_BITS];
+        for (int start = 0; start < input.length; start += BLOCK_SIZE) {
+            compressBlock(input, start, Math.min(input.length, start + BLOCK_SIZE), table, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static void compressBlock(
+            byte[] in, int start, int end, int[] table, ByteArrayOutputStream out) {
+        Arrays.fill(table, -1);
+        int literal = start;
+        int i = start;
+        while (i + 4 <= end) {
+            int hash = hash(in, i);
+            int candidate = table[hash];
+            table[hash] = i;
+            if (candidate < 0 || !matches4(in, candidate, i)) {
+                ++i;
+                continue;
+            }
+            int length = 4;
+            while (i + length < end && in[candidate + length] == in[i + length]) {
+                ++length;
+            }
+            writeLiteral(in, literal, i - literal, out);
+            writeCopy(i - candidate, length, out);
+            i += length;
+            literal = i;
+        }
+        writeLiteral(in, literal, end - literal, out);
+    }
+
+    private static int hash(byte[] in, int i) {
+        int value =
+                (in[i] & 0xff)
+                        | (in[i + 1] & 0xff) << 8
+                        | (in[i + 2] & 0xff) << 16
+                        | (in[i + 3] & 0xff) << 24;
+        return (value * 0x1e35a7bd) >>> (32 - HASH_BITS);
+    }
+
+    private static boolean matches4(byte[] in, int a, int b) {
+        return in[a] == in[b]
+                && in[a + 1] == in[b + 1]
+                && in[a + 2] == in[b + 2]
+                && in[a + 3] == in[b + 3];
+    }
+
+    private static void writeLiteral(byte[] in, int offset, int length, ByteArrayOutputStream out) {
+        if (length == 0) {
+            return;
+        }
+        int n = length - 1;
+        if (n < 60) {
+            out.write(n << 2);
+        } else if (n < 1 << 8) {
+            out.write(60 << 2);
+            out.write(n);
+        } else if (n < 1 << 16) {
+            out.write(61 << 2);
+            out.write(n);
+            out.write(n >>> 8);
+        } else {
+            out.write(62 << 2);
+            out.write(n);
+            out.write(n >>> 8);
+            out.write(n >>> 16);
+        }
+        out.write(in, offset, length);
+    }
+
+    /** A copy holds at most 64 bytes, longer matches are split leaving at least 4 for the last. */
+    private static void writeCopy(int offset, int length, ByteArrayOutputStream out) {
+        while (length >= 68) {
+            writeCopy2(offset, 64, out);
+            length -= 64;
+        }
+        if (length > 64) {
+            writeCopy2(offset, 60, out);
+            length -= 60;
+        }
+        if (length < 12 && offset < 2048) {
+            out.write(1 | (length - 4) << 2 | (offset >>> 8) << 5);
+            out.write(offset);
+        } else {
+            writeCopy2(offset, length, out);
+        }
+    }
+
+    private static void writeCopy2(int offset, int length, ByteArrayOutputStream out) {
+        out.write(2 | (length - 1) << 2);
+        out.write(offset);
+        out.write(offset >>> 8);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remote write {@code WriteRequest} protobuf message, each time series of one sample is encoded as
+ * it is added. Metadata is not sent, the type of a series follows from its name.
+ */
+class WriteRequest {
+    private static final int TIMESERIES = 1 << 3 | 2;
+    private static final int LABELS = 1 << 3 | 2;
+    private static final int SAMPLES = 2 << 3 | 2;
+    private static final int LABEL_NAME = 1 << 3 | 2;
+    private static final int LABEL_VALUE = 2 << 3 | 2;
+    private static final int SAMPLE_VALUE = 1 << 3 | 1;
+    private static final int SAMPLE_TIMESTAMP = 2 << 3;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 12);
+    private final ByteArrayOutputStream series = new ByteArrayOutputStream(256);
+    private int size;
+
+    /** Labels are sorted by name as remote write requires, {@code __name__} included. */
+    void add(
+            String name,
+            List<String> labelNames,
+            List<String> labelValues,
+            double value,
+            long timestampMs) {
+        Map<String, String> labels = new TreeMap<>();
+        labels.put("__name__", name);
+        for (int i = 0; i < labelNames.size(); ++i) {
+            labels.put(labelNames.get(i), labelValues.get(i));
+        }
+        series.reset();
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            byte[] labelName = label.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] labelValue = label.getValue().getBytes(StandardCharsets.UTF_8);
+            series.write(LABELS);
+            writeVarint(
+                    series,
+                    2
+                            + varintSize(labelName.length)
+                            + labelName.length
+                            + varintSize(labelValue.length)
+                            + labelValue.length);
+            writeBytes(series, LABEL_NAME, labelName);
+            writeBytes(series, LABEL_VALUE, labelValue);
+        }
+        series.write(SAMPLES);
+        writeVarint(series, 10 + varintSize(timestampMs));
+        series.write(SAMPLE_VALUE);
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < 8; ++i) {
+            series.write((int) (bits >>> (i * 8)));
+        }
+        series.write(SAMPLE_TIMESTAMP);
+        writeVarint(series, timestampMs);
+        out.write(TIMESERIES);
+        writeVarint(out, series.size());
+        out.write(series.toByteArray(), 0, series.size());
+        ++size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int tag, byte[] bytes) {
+        out.write(tag);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            ++size;
+        }
+        return size;
+    }
+}
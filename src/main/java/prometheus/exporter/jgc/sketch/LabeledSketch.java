@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.sketch;
+
+import java.util.Collections;
+import java.util.Map;
+import prometheus.exporter.jgc.metric.DDSketch;
+
+/** Sketch of one series, e.g. the pauses of one category of one log. */
+public class LabeledSketch {
+    private final String name;
+    private final Map<String, String> labels;
+    private final DDSketch sketch;
+
+    public LabeledSketch(String name, Map<String, String> labels, DDSketch sketch) {
+        this.name = name;
+        this.labels = Collections.unmodifiableMap(labels);
+        this.sketch = sketch;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public DDSketch getSketch() {
+        return sketch;
+    }
+}
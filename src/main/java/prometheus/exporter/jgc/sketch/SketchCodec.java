@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.sketch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import prometheus.exporter.jgc.metric.DDSketch;
+import prometheus.exporter.jgc.metric.Distribution;
+
+/**
+ * JSON form of sketches, {@code counts[i]} is the count of bucket {@code offset + i}. Empty
+ * sketches are left out, their min and max are not numbers.
+ */
+public final class SketchCodec {
+    public static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SketchCodec() {}
+
+    /** Sketches of each series of the distributions. */
+    public static List<LabeledSketch> of(Collection<Distribution> distributions) {
+        List<LabeledSketch> sketches = new ArrayList<>();
+        for (Distribution distribution : distributions) {
+            String name = distribution.getName();
+            List<String> labelNames = distribution.getLabelNames();
+            for (Map.Entry<List<String>, DDSketch> entry : distribution.sketches().entrySet()) {
+                Map<String, String> labels = new LinkedHashMap<>();
+                for (int i = 0; i < labelNames.size(); ++i) {
+                    labels.put(labelNames.get(i), entry.getKey().get(i));
+                }
+                sketches.add(new LabeledSketch(name, labels, entry.getValue()));
+            }
+        }
+        return sketches;
+    }
+
+    public static byte[] encode(List<LabeledSketch> sketches) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode array = root.putArray("sketches");
+        for (LabeledSketch labeled : sketches) {
+            DDSketch sketch = labeled.getSketch().copy();
+            if (sketch.getCount() == 0) {
+                continue;
+            }
+            ObjectNode node = array.addObject();
+            node.put("name", labeled.getName());
+            ObjectNode labels = node.putObject("labels");
+            labeled.getLabels().forEach(labels::put);
+            node.put("relativeAccuracy", sketch.getRelativeAccuracy());
+            node.put("count", sketch.getCount());
+            node.put("sum", sketch.getSum());
+            node.put("min", sketch.getMin());
+            node.put("max", sketch.getMax());
+            node.put("zeroCount", sketch.getZeroCount());
+            node.put("offset", sketch.getOffset());
+            ArrayNode counts = node.putArray("counts");
+            for (long count : sketch.getCounts()) {
+                counts.add(count);
+            }
+        }
+        return MAPPER.writeValueAsBytes(root);
+    }
+
+    public static List<LabeledSketch> decode(InputStream in) throws IOException {
+        List<LabeledSketch> sketches = new ArrayList<>();
+        for (JsonNode node : MAPPER.readTree(in).path("sketches")) {
+            Map<String, String> labels = new LinkedHashMap<>();
+            node.path("labels")
+                    .fields()
+                    .forEachRemaining(e -> labels.put(e.getKey(), e.getValue().asText()));
+            JsonNode countsNode = node.path("counts");
+            long[] counts = new long[countsNode.size()];
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] = countsNode.get(i).asLong();
+            }
+            DDSketch sketch =
+                    DDSketch.of(
+                            node.path("relativeAccuracy").asDouble(),
+                            node.path("offset").asInt(),
+                            counts,
+                            node.path("zeroCount").asLong(),
+                            node.path("sum").asDouble(),
+                            node.path("min").asDouble(),
+                            node.path("max").asDouble());
+            sketches.add(new LabeledSketch(node.path("name").asText(), labels, sketch));
+        }
+        return sketches;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.sketch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.*;
+import prometheus.exporter.jgc.metric.DDSketch;
+
+/**
+ * Merge the sketches of many exporters, e.g. the pauses of a fleet, and print the quantiles of each
+ * group: {@code java -cp jgc_exporter.jar prometheus.exporter.jgc.sketch.SketchMerge [--by
+ * category] <file or url of /sketches>...}. Series are grouped by name and the {@code --by} labels,
+ * by default all labels except path and host.
+ */
+public class SketchMerge {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /** Merged sketches of the groups, the labels of a group are {@code by}, or all but excluded. */
+    public static List<LabeledSketch> merge(
+            Collection<LabeledSketch> sketches, Set<String> by, Set<String> excluded) {
+        Map<List<Object>, LabeledSketch> groups = new LinkedHashMap<>();
+        for (LabeledSketch sketch : sketches) {
+            Map<String, String> labels = new TreeMap<>();
+            sketch.getLabels()
+                    .forEach(
+                            (name, value) -> {
+                                if (by != null ? by.contains(name) : !excluded.contains(name)) {
+                                    labels.put(name, value);
+                                }
+                            });
+            LabeledSketch group =
+                    groups.computeIfAbsent(
+                            Arrays.asList(sketch.getName(), labels),
+                            key ->
+                                    new LabeledSketch(
+                                            sketch.getName(),
+                                            labels,
+                                            new DDSketch(
+                                                    sketch.getSketch().getRelativeAccuracy())));
+            group.getSketch().merge(sketch.getSketch());
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    public static void main(String[] args) throws IOException {
+        Set<String> by = null;
+        List<LabeledSketch> sketches = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            if ("--by".equals(args[i]) && i + 1 < args.length) {
+                by = new HashSet<>(Arrays.asList(args[++i].split(",")));
+                continue;
+            }
+            try (InputStream in = open(args[i])) {
+                sketches.addAll(SketchCodec.decode(in));
+            }
+        }
+        if (sketches.isEmpty()) {
+            System.err.println("usage: SketchMerge [--by label,...] <file or url of /sketches>...");
+            System.exit(1);
+        }
+        for (LabeledSketch group :
+                merge(sketches, by, new HashSet<>(Arrays.asList("path", "host")))) {
+            DDSketch sketch = group.getSketch();
+            StringBuilder line = new StringBuilder(group.getName()).append(group.getLabels());
+            line.append(" count=").append(sketch.getCount());
+            for (double quantile : QUANTILES) {
+                line.append(" q").append(quantile).append('=').append(sketch.quantile(quantile));
+            }
+            System.out.println(line);
+        }
+    }
+
+    private static InputStream open(String source) throws IOException {
+        if (source.contains("://")) {
+            return new URL(source).openStream();
+        }
+        return Files.newInputStream(new File(source).toPath());
+    }
+}
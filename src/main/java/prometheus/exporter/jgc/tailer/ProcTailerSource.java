@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.tailer;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.GC_PROCESS_INFO;
+
+import com.google.common.collect.Lists;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.metric.MetricBinding;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+/**
+ * Discover gc log files from the command lines of running java processes, {@code -Xlog:gc*:file=}
+ * and {@code -Xloggc:} targets are resolved through {@code /proc/<pid>/root} and {@code
+ * /proc/<pid>/cwd}, so files inside containers are found as well.
+ */
+public class ProcTailerSource extends TailerSource {
+    private static final Logger LOG = LoggerFactory.getLogger(TailerMatcher.class);
+    private static final Pattern PID = Pattern.compile("\\d+");
+    private static final Set<String> OPTIONS_WITH_VALUE =
+            new HashSet<>(
+                    Arrays.asList(
+                            "-cp",
+                            "-classpath",
+                            "--class-path",
+                            "-p",
+                            "--module-path",
+                            "--upgrade-module-path",
+                            "--add-modules",
+                            "--limit-modules",
+                            "--add-reads",
+                            "--add-exports",
+                            "--add-opens",
+                            "--patch-module"));
+    private final Path procRoot;
+    private final String host;
+    private Map<File, List<String>> processes = Collections.emptyMap();
+    private final Map<File, MetricBinding> bindings = new HashMap<>();
+
+    public ProcTailerSource(String procRoot) {
+        super(procRoot);
+        this.procRoot = Path.of(procRoot);
+        this.host = OperatingSystem.getLocalHostName();
+    }
+
+    @Override
+    public List<File> findMatchingFiles() {
+        Map<File, List<String>> found = new LinkedHashMap<>();
+        long scanStart = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(procRoot)) {
+            for (Path procDir : stream) {
+                String pid = procDir.getFileName().toString();
+                if (!PID.matcher(pid).matches()) {
+                    continue;
+                }
+                try {
+                    List<String> args = readCmdline(procDir.resolve("cmdline"));
+                    if (args.isEmpty() || !isJava(args.get(0))) {
+                        continue;
+                    }
+                    String mainClass = findMainClass(args);
+                    for (String target : findLogTargets(args)) {
+                        File file = resolve(procDir, pid, target);
+                        if (file != null) {
+                            found.put(file, Arrays.asList(pid, mainClass));
+                        }
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    LOG.debug("Inspect process {} failed", procDir, ex);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.error("Find matching files fail: {} ", procRoot, ex);
+        }
+
+        Iterator<Map.Entry<File, MetricBinding>> iterator = bindings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, MetricBinding> entry = iterator.next();
+            if (!found.containsKey(entry.getKey())) {
+                entry.getValue().close();
+                MetricRegistry.detach(target(entry.getKey()));
+                iterator.remove();
+            }
+        }
+        for (Map.Entry<File, List<String>> entry : found.entrySet()) {
+            File file = entry.getKey();
+            List<String> labels = entry.getValue();
+            MetricBinding metrics =
+                    bindings.computeIfAbsent(
+                            file, f -> MetricBinding.forPath(target(f), f.getPath(), host));
+            if (!labels.equals(processes.get(file))) {
+                metrics.remove(GC_PROCESS_INFO);
+            }
+            // set on every scan, so series evicted meanwhile come back
+            metrics.get(GC_PROCESS_INFO, labels.get(0), labels.get(1)).set(1);
+        }
+        processes = found;
+
+        LOG.info(
+                "Proc[{}] Find {} files, Cost {} ms",
+                procRoot,
+                found.size(),
+                System.currentTimeMillis() - scanStart);
+        return Lists.newArrayList(found.keySet());
+    }
+
+    /** Per-file target of the process info, leased and evicted like the handlers. */
+    private Object target(File file) {
+        return Arrays.asList(this, file);
+    }
+
+    private List<String> readCmdline(Path cmdline) throws IOException {
+        String content = new String(Files.readAllBytes(cmdline), StandardCharsets.UTF_8);
+        List<String> args = new ArrayList<>();
+        for (String arg : content.split("\0")) {
+            if (!arg.isEmpty()) {
+                args.add(arg);
+            }
+        }
+        return args;
+    }
+
+    private boolean isJava(String executable) {
+        String name = Path.of(executable).getFileName().toString();
+        return name.equals("java") || name.equals("javaw");
+    }
+
+    static String findMainClass(List<String> args) {
+        for (int i = 1; i < args.size(); ++i) {
+            String arg = args.get(i);
+            if (arg.equals("-jar") || arg.equals("-m") || arg.equals("--module")) {
+                return i + 1 < args.size() ? Path.of(args.get(i + 1)).getFileName().toString() : "";
+            } else if (arg.startsWith("--module=")) {
+                return arg.substring("--module=".length());
+            } else if (OPTIONS_WITH_VALUE.contains(arg)) {
+                ++i;
+            } else if (!arg.startsWith("-")) {
+                return arg;
+            }
+        }
+        return "";
+    }
+
+    static List<String> findLogTargets(List<String> args) {
+        List<String> targets = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-Xloggc:")) {
+                targets.add(arg.substring("-Xloggc:".length()));
+            } else if (arg.startsWith("-Xlog:")) {
+                List<String> parts = splitXlog(arg.substring("-Xlog:".length()));
+                if (parts.size() < 2 || !selectsGC(parts.get(0))) {
+                    continue;
+                }
+                String output = parts.get(1);
+                if (output.startsWith("file=")) {
+                    output = output.substring("file=".length());
+                }
+                if (!output.isEmpty() && !output.equals("stdout") && !output.equals("stderr")) {
+                    targets.add(output);
+                }
+            }
+        }
+        return targets;
+    }
+
+    /** Split on ':' except inside double quotes, which are stripped. */
+    private static List<String> splitXlog(String spec) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < spec.length(); ++i) {
+            char ch = spec.charAt(i);
+            if (ch == '"') {
+                quoted = !quoted;
+            } else if (ch == ':' && !quoted) {
+                parts.add(part.toString());
+                part.setLength(0);
+            } else {
+                part.append(ch);
+            }
+        }
+        parts.add(part.toString());
+        return parts;
+    }
+
+    private static boolean selectsGC(String what) {
+        for (String selector : what.split(",")) {
+            String tags = selector.split("=")[0];
+            for (String tag : tags.split("\\+")) {
+                if (tag.equals("all") || tag.equals("gc") || tag.equals("gc*")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private File resolve(Path procDir, String pid, String target) throws IOException {
+        Path root = procDir.resolve("root");
+        boolean sameRoot = Files.isSameFile(root, Path.of("/"));
+        String name = target.replace("%p", pid);
+        Path path;
+        if (name.startsWith("/")) {
+            path = sameRoot ? Path.of(name) : root.resolve(name.substring(1));
+        } else {
+            Path cwd = procDir.resolve("cwd");
+            path = (sameRoot ? cwd.toRealPath() : cwd).resolve(name);
+        }
+
+        if (name.contains("%t")) {
+            return newest(path.getParent(), globOf(path.getFileName().toString()));
+        }
+        if (Files.isRegularFile(path)) {
+            return path.toFile();
+        }
+        // -XX:+UseGCLogFileRotation of jdk8 writes to <name>.<n>.current
+        return newest(path.getParent(), globOf(path.getFileName().toString()) + ".*.current");
+    }
+
+    private static String globOf(String name) {
+        return name.replaceAll("([\\\\*?\\[\\]{}])", "\\\\$1").replace("%t", "*");
+    }
+
+    private static File newest(Path dir, String glob) throws IOException {
+        if (dir == null || !Files.isDirectory(dir)) {
+            return null;
+        }
+        File newest = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path entry : stream) {
+                File file = entry.toFile();
+                if (file.isFile()
+                        && (newest == null || file.lastModified() > newest.lastModified())) {
+                    newest = file;
+                }
+            }
+        }
+        return newest;
+    }
+}
@@ -39,8 +39,12 @@ public abstract class Tailer {
     private final int bufferSize;
     private final byte[] readBuffer;
     private final LineBuffer lineBuffer;
+    private final long[] offsets;
+    private long bufferOffset;
+    private long lineOffset;
     private final RateLimiter limiter;
     private long lastModified;
+    private boolean throttled;
 
     public Tailer(File file, boolean seekToEnd, int batchSize, int bufferSize, int linesPerSecond) {
         this.file = Objects.requireNonNull(file);
@@ -58,22 +62,46 @@ public abstract class Tailer {
         this.bufferSize = bufferSize;
         this.readBuffer = new byte[bufferSize];
         this.lineBuffer = new LineBuffer();
+        this.offsets = new long[batchSize];
         this.limiter = RateLimiter.create(linesPerSecond);
         initialize();
     }
 
     public List<String> readLines() throws IOException {
+        throttled = false;
         List<String> lines = new LinkedList<>();
         for (int i = 0; i < batchSize; ++i) {
+            long offset = lineOffset;
             String line = readLine();
             if (line == null) {
                 break;
             }
+            offsets[i] = offset;
             lines.add(line);
         }
         return lines;
     }
 
+    /** Bytes of the file not read yet. */
+    public long lag() throws IOException {
+        return Math.max(0, raf.length() - lineOffset);
+    }
+
+    /** Whether the last {@link #readLines()} stopped at the lines per second limit. */
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /** File offset following the last line returned by {@link #readLines()}. */
+    public long position() {
+        return lineOffset;
+    }
+
+    /** File offset of the {@code index}-th line returned by the last {@link #readLines()}. */
+    public long offset(int index) {
+        return offsets[index];
+    }
+
     public boolean rotated() {
         try {
             // inode changes
@@ -105,6 +133,10 @@ public abstract class Tailer {
         return file;
     }
 
+    public Object getFileKey() {
+        return fileKey;
+    }
+
     public void close() {
         if (this.raf != null) {
             try {
@@ -125,6 +157,7 @@ public abstract class Tailer {
             } else {
                 this.raf.seek(0);
             }
+            this.lineOffset = this.raf.getFilePointer();
             this.bufferPos = NEED_READING;
             this.bufferCap = 0;
             this.lastModified = file.lastModified();
@@ -135,7 +168,9 @@ public abstract class Tailer {
 
     private String readLine() throws IOException {
         if (!limiter.tryAcquire()) {
-            LOG.warn("Read frequency limit: {}", file);
+            // counted by the caller, the log would repeat for every batch
+            LOG.debug("Read frequency limit: {}", file);
+            throttled = true;
             return null;
         }
         while (true) {
@@ -158,6 +193,7 @@ public abstract class Tailer {
                     } else {
                         bufferPos = NEED_READING;
                     }
+                    lineOffset = bufferOffset + i + 1;
 
                     return lineBuffer.buildAndReset();
                 }
@@ -172,6 +208,7 @@ public abstract class Tailer {
     }
 
     private void readFile() throws IOException {
+        bufferOffset = raf.getFilePointer();
         bufferCap = raf.read(readBuffer, 0, readBuffer.length);
         bufferPos = 0;
     }
@@ -25,4 +25,12 @@ public interface TailerListener {
     void onRotate(File file);
 
     void onRead(File file, String line);
+
+    /** Like {@link #onRead(File, String)}, with the file offset where the line starts. */
+    default void onRead(File file, String line, long offset) {
+        onRead(file, line);
+    }
+
+    /** Bytes of the file not read yet, after each read. */
+    default void onLag(File file, long bytes) {}
 }
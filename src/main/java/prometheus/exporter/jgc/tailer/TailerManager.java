@@ -15,6 +15,8 @@
  */
 package prometheus.exporter.jgc.tailer;
 
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -26,11 +28,14 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.metric.MetricBinding;
+import prometheus.exporter.jgc.metric.MetricRegistry;
 import prometheus.exporter.jgc.util.OperatingSystem;
 
 public class TailerManager {
@@ -48,6 +53,11 @@ public class TailerManager {
     private final AtomicBoolean started;
     private final int readInterval;
     private final Cache<File, Long> invalidFiles;
+    private final boolean fileAliasLabel;
+    private final Map<File, Set<File>> exportedAliases;
+    private final Map<Tailer, MetricBinding> bindings;
+    private final Map<Tailer, Long> exportedLags;
+    private final String host;
 
     public TailerManager(Config config, TailerListener listener) {
         this.started = new AtomicBoolean(true);
@@ -55,12 +65,18 @@ public class TailerManager {
                 new TailerMatcher(
                         config.getFileRegexPattern(),
                         config.getFileGlobPattern(),
-                        config.getScanFilesPerSecond());
+                        config.getScanFilesPerSecond(),
+                        config.isProcDiscovery() ? config.getProcRoot() : null);
         this.idleTimeout = config.getIdleTimeout();
         this.batchSize = config.getBatchSize();
         this.bufferSize = config.getBufferSize();
         this.linesPerSecond = config.getLinesPerSecond();
         this.readInterval = config.getReadInterval();
+        this.fileAliasLabel = config.isFileAliasLabel();
+        this.exportedAliases = new HashMap<>();
+        this.bindings = new HashMap<>();
+        this.exportedLags = new HashMap<>();
+        this.host = OperatingSystem.getLocalHostName();
         this.listener = Objects.requireNonNull(listener);
         this.invalidFiles =
                 CacheBuilder.newBuilder()
@@ -84,6 +100,7 @@ public class TailerManager {
                 return;
             }
 
+            long scanStart = System.nanoTime();
             List<File> matchingFiles = new ArrayList<>();
             try {
                 matchingFiles =
@@ -94,8 +111,13 @@ public class TailerManager {
             } catch (Throwable t) {
                 LOG.error("findMatchingFiles error", t);
             }
+            TAILER_SCAN_FILES.attach(TailerManager.this, host).set(matchingFiles.size());
+            TAILER_SCAN_DURATION
+                    .attach(TailerManager.this, host)
+                    .set((System.nanoTime() - scanStart) / 1e9);
             lock.lock();
             try {
+                Set<File> rotatedFiles = new HashSet<>();
                 final Iterator<Tailer> iterator = registry.values().iterator();
                 while (iterator.hasNext()) {
                     Tailer tailer = iterator.next();
@@ -108,14 +130,36 @@ public class TailerManager {
                     } else if (tailer.rotated()) {
                         try {
                             rotate(tailer);
+                            rotatedFiles.add(tailer.getFile());
                         } finally {
                             iterator.remove();
                         }
                     }
                 }
 
+                Set<Object> tailedKeys = new HashSet<>();
+                for (Tailer tailer : registry.values()) {
+                    if (tailer.getFileKey() != null) {
+                        tailedKeys.add(tailer.getFileKey());
+                    }
+                }
+
                 for (File file : matchingFiles) {
+                    if (!registry.containsKey(file)
+                            && tailedKeys.contains(tailerMatcher.getFileKey(file))) {
+                        LOG.debug("Ignore file already tailed by another path: {}", file);
+                        continue;
+                    }
                     try {
+                        if (rotatedFiles.contains(file)) {
+                            // same logical log, keep its handler and read the new file entirely
+                            registry.put(
+                                    file,
+                                    newTailer(file, false, batchSize, bufferSize, linesPerSecond));
+                            rotatedFiles.remove(file);
+                            callListener(file, listener::onRotate);
+                            continue;
+                        }
                         registry.computeIfAbsent(
                                 file,
                                 f -> {
@@ -131,6 +175,15 @@ public class TailerManager {
                     }
                 }
 
+                // rotated away without a successor
+                for (File file : rotatedFiles) {
+                    callListener(file, listener::onClose);
+                }
+
+                if (fileAliasLabel) {
+                    exportAliases();
+                }
+
             } catch (Throwable t) {
                 LOG.error("Watch file failed.", t);
             } finally {
@@ -139,45 +192,100 @@ public class TailerManager {
         }
     }
 
+    private void exportAliases() {
+        for (Tailer tailer : registry.values()) {
+            File file = tailer.getFile();
+            Set<File> aliases = tailerMatcher.getAliases(file);
+            MetricBinding metrics = metrics(tailer);
+            if (!aliases.equals(exportedAliases.getOrDefault(file, Collections.emptySet()))) {
+                metrics.remove(GC_COLLECT_FILE_ALIASES);
+                exportedAliases.put(file, aliases);
+            }
+            // set on every scan, so series evicted meanwhile come back
+            for (File alias : aliases) {
+                metrics.get(GC_COLLECT_FILE_ALIASES, alias.getPath()).set(1);
+            }
+        }
+    }
+
+    /** Per-file series of the tailer, leased like those of the handlers. */
+    private MetricBinding metrics(Tailer tailer) {
+        return bindings.computeIfAbsent(
+                tailer, t -> MetricBinding.forPath(t, t.getFile().getPath(), host));
+    }
+
+    private void detach(Tailer tailer) {
+        exportedAliases.remove(tailer.getFile());
+        exportedLags.remove(tailer);
+        MetricBinding metrics = bindings.remove(tailer);
+        if (metrics != null) {
+            metrics.close();
+        }
+        MetricRegistry.detach(tailer);
+    }
+
     private void close(Tailer tailer) {
+        detach(tailer);
         try {
             tailer.close();
         } finally {
-            try {
-                listener.onClose(tailer.getFile());
-            } catch (Throwable t) {
-                LOG.error("Close file failed: {}", tailer, t);
-            }
+            callListener(tailer.getFile(), listener::onClose);
         }
     }
 
     private void rotate(Tailer tailer) {
+        detach(tailer);
+        tailer.close();
+    }
+
+    private void callListener(File file, Consumer<File> callback) {
         try {
-            tailer.close();
-        } finally {
-            try {
-                listener.onRotate(tailer.getFile());
-            } catch (Throwable t) {
-                LOG.error("Rotate file failed: {}", tailer, t);
-            }
+            callback.accept(file);
+        } catch (Throwable t) {
+            LOG.error("Notify file failed: {}", file, t);
         }
     }
 
     private class TailerRunnable implements Runnable {
+        private long exportedMaxLag = -1;
+
         @Override
         public void run() {
             while (started.get()) {
                 int produceLines = 0;
+                long maxLag = 0;
                 lock.lock();
                 try {
                     for (Tailer tailer : registry.values()) {
                         try {
                             File file = tailer.getFile();
+                            MetricBinding metrics = metrics(tailer);
+                            long start = System.nanoTime();
+                            long position = tailer.position();
                             List<String> lines = tailer.readLines();
+                            if (!lines.isEmpty()) {
+                                TAILER_READ_DURATION
+                                        .attach(TailerManager.this, host)
+                                        .observe((System.nanoTime() - start) / 1e9);
+                                metrics.get(TAILER_READ_BYTES).inc(tailer.position() - position);
+                            }
+                            int index = 0;
                             for (String line : lines) {
-                                listener.onRead(file, line);
+                                listener.onRead(file, line, tailer.offset(index++));
                             }
                             produceLines += lines.size();
+                            if (tailer.isThrottled()) {
+                                metrics.get(TAILER_THROTTLED).inc();
+                            }
+                            long lag = tailer.lag();
+                            // set on a change only, idle files leave the metrics version alone
+                            boolean evicted = metrics.touch();
+                            Long exported = exportedLags.put(tailer, lag);
+                            if (evicted || exported == null || exported != lag) {
+                                metrics.get(TAILER_LAG).set(lag);
+                            }
+                            listener.onLag(file, lag);
+                            maxLag = Math.max(maxLag, lag);
                         } catch (Throwable t) {
                             LOG.error("Read file failed: {}", tailer, t);
                         }
@@ -185,6 +293,10 @@ public class TailerManager {
                 } finally {
                     lock.unlock();
                 }
+                if (maxLag != exportedMaxLag) {
+                    TAILER_MAX_LAG.attach(TailerManager.this, host).set(maxLag);
+                    exportedMaxLag = maxLag;
+                }
                 LOG.debug("Read {} lines", produceLines);
                 if (produceLines == 0) {
                     try {
@@ -207,6 +319,7 @@ public class TailerManager {
     public void close() {
         if (started.compareAndSet(true, false)) {
             watcher.shutdown();
+            MetricRegistry.detach(this);
         }
     }
 
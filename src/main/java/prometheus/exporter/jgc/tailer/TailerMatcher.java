@@ -16,15 +16,25 @@
 package prometheus.exporter.jgc.tailer;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import prometheus.exporter.jgc.util.OperatingSystem;
 
 public class TailerMatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(TailerMatcher.class);
     private final List<TailerSource> sources = new ArrayList<>();
+    private volatile Map<File, Set<File>> aliases = Collections.emptyMap();
+    private volatile Map<File, Object> fileKeys = Collections.emptyMap();
 
     public TailerMatcher(String regexPattern, String globPattern, int scanFilesPerSecond) {
+        this(regexPattern, globPattern, scanFilesPerSecond, null);
+    }
+
+    public TailerMatcher(
+            String regexPattern, String globPattern, int scanFilesPerSecond, String procRoot) {
         if (regexPattern != null) {
             String[] regexPatterns = regexPattern.split(",");
             for (String pattern : regexPatterns) {
@@ -38,13 +48,87 @@ public class TailerMatcher {
                 sources.add(new GlobTailerSource(pattern, scanFilesPerSecond));
             }
         }
+
+        if (procRoot != null) {
+            sources.add(new ProcTailerSource(procRoot));
+        }
     }
 
+    /**
+     * Find files of all sources, the same physical file (dev + inode) reached through symlinks,
+     * bind mounts or overlapping patterns is returned only once under its canonical path.
+     */
     public List<File> findMatchingFiles() {
-        return sources.stream()
-                .map(TailerSource::findMatchingFiles)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        Map<Object, Set<File>> groups = new LinkedHashMap<>();
+        for (TailerSource source : sources) {
+            for (File file : source.findMatchingFiles()) {
+                groups.computeIfAbsent(fileKey(file), k -> new TreeSet<>()).add(file);
+            }
+        }
+
+        List<File> result = new ArrayList<>(groups.size());
+        Map<File, Set<File>> currAliases = new HashMap<>();
+        Map<File, Object> currFileKeys = new HashMap<>();
+        for (Map.Entry<Object, Set<File>> entry : groups.entrySet()) {
+            Set<File> group = entry.getValue();
+            File canonical = canonicalOf(group);
+            result.add(canonical);
+            currFileKeys.put(canonical, entry.getKey());
+            if (group.size() > 1) {
+                Set<File> others = new TreeSet<>(group);
+                others.remove(canonical);
+                currAliases.put(canonical, others);
+                LOG.debug("Dedupe {} aliases: {}", canonical, others);
+            }
+        }
+        this.aliases = currAliases;
+        this.fileKeys = currFileKeys;
+        return result;
+    }
+
+    /** Aliases of canonical file found by the last {@link #findMatchingFiles()}. */
+    public Set<File> getAliases(File canonical) {
+        return aliases.getOrDefault(canonical, Collections.emptySet());
+    }
+
+    /**
+     * File key of canonical file computed by the last {@link #findMatchingFiles()}, so callers do
+     * not stat it a second time.
+     */
+    public Object getFileKey(File canonical) {
+        Object fileKey = fileKeys.get(canonical);
+        return fileKey != null ? fileKey : fileKey(canonical);
+    }
+
+    static Object fileKey(File file) {
+        try {
+            Object fileKey = OperatingSystem.getFileKey(file);
+            if (fileKey != null) {
+                return fileKey;
+            }
+        } catch (IOException ex) {
+            LOG.debug("Get fileKey failed: {}", file, ex);
+        }
+        return file.getAbsoluteFile();
+    }
+
+    /**
+     * The smallest real path of the group, or the smallest matched path if none of them can be
+     * resolved, so the choice does not depend on source order or walk order.
+     */
+    static File canonicalOf(Set<File> group) {
+        File canonical = null;
+        for (File file : group) {
+            try {
+                Path real = file.toPath().toRealPath();
+                if (group.contains(real.toFile())
+                        && (canonical == null || real.toFile().compareTo(canonical) < 0)) {
+                    canonical = real.toFile();
+                }
+            } catch (IOException ignore) {
+            }
+        }
+        return canonical != null ? canonical : group.iterator().next();
     }
 
     @Override
@@ -16,6 +16,8 @@
 package prometheus.exporter.jgc.util;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
@@ -57,6 +59,15 @@ public class OperatingSystem {
         return "localhost";
     }
 
+    /** Recent cpu usage of this process from 0 to 1, negative when unknown. */
+    public static double getProcessCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+        }
+        return -1;
+    }
+
     public static Object getFileKey(File file) throws IOException {
         return Files.getAttribute(file.toPath(), "fileKey");
     }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.SampleNameFilter;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.tailer.TailerListener;
+import prometheus.exporter.jgc.tailer.TailerManager;
+
+public class ExpositionCacheTest {
+
+    @Test
+    public void testInterval() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("test_cache_gauge").help("test").register(registry);
+        ExpositionCache cache =
+                new ExpositionCache(registry, SampleNameFilter.ALLOW_ALL, 60_000, false, true);
+        try {
+            gauge.set(1);
+            ExpositionCache.Payload payload = cache.get();
+            Assert.assertTrue(text(payload).contains("test_cache_gauge 1.0"));
+            gauge.set(2);
+            Assert.assertSame(payload, cache.get());
+            try (GZIPInputStream in =
+                    new GZIPInputStream(new ByteArrayInputStream(payload.getGzip()))) {
+                Assert.assertArrayEquals(payload.getText(), in.readAllBytes());
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testOpenMetrics() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("test_cache_gauge").help("test").register(registry);
+        ExpositionCache cache =
+                new ExpositionCache(registry, SampleNameFilter.ALLOW_ALL, 60_000, false, false);
+        try {
+            gauge.set(1);
+            ExpositionCache.Payload text = cache.get();
+            ExpositionCache.Payload openMetrics =
+                    cache.get(TextFormat.CONTENT_TYPE_OPENMETRICS_100, Collections.emptySet());
+            Assert.assertEquals(TextFormat.CONTENT_TYPE_004, text.getContentType());
+            Assert.assertEquals(
+                    TextFormat.CONTENT_TYPE_OPENMETRICS_100, openMetrics.getContentType());
+            Assert.assertFalse(text(text).contains("# EOF"));
+            Assert.assertTrue(text(openMetrics).endsWith("# EOF\n"));
+            Assert.assertSame(
+                    openMetrics,
+                    cache.get(TextFormat.CONTENT_TYPE_OPENMETRICS_100, Collections.emptySet()));
+            Assert.assertSame(text, cache.get());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testOnChange() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("test_cache_gauge").help("test").register(registry);
+        ExpositionCache cache =
+                new ExpositionCache(registry, SampleNameFilter.ALLOW_ALL, 1, true, false);
+        // an idle file read every few ms does not count as a change
+        File file = File.createTempFile("test-on-change", ".log");
+        file.deleteOnExit();
+        Config config = new Config();
+        config.setFileRegexPattern(file.getAbsolutePath());
+        config.setReadInterval(5);
+        CountDownLatch open = new CountDownLatch(1);
+        TailerManager manager =
+                new TailerManager(
+                        config,
+                        new TailerListener() {
+                            @Override
+                            public void onOpen(File file) {
+                                open.countDown();
+                            }
+
+                            @Override
+                            public void onClose(File file) {}
+
+                            @Override
+                            public void onRotate(File file) {}
+
+                            @Override
+                            public void onRead(File file, String line) {}
+                        });
+        try {
+            open.await();
+            Thread.sleep(100);
+            gauge.set(1);
+            ExpositionCache.Payload payload = cache.get();
+            Assert.assertNull(payload.getGzip());
+            gauge.set(2);
+            Thread.sleep(100);
+            Assert.assertTrue(text(cache.get()).contains("test_cache_gauge 1.0"));
+            MetricRegistry.markChanged();
+            Thread.sleep(10);
+            Assert.assertTrue(text(cache.get()).contains("test_cache_gauge 2.0"));
+        } finally {
+            manager.close();
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger collects = new AtomicInteger();
+        CollectorRegistry registry = new CollectorRegistry();
+        new Collector() {
+            @Override
+            public List<MetricFamilySamples> collect() {
+                collects.incrementAndGet();
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.emptyList();
+            }
+        }.register(registry);
+        ExpositionCache cache =
+                new ExpositionCache(registry, SampleNameFilter.ALLOW_ALL, 0, false, false);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<ExpositionCache.Payload> first = executor.submit(() -> cache.get());
+            entered.await();
+            Future<ExpositionCache.Payload> second = executor.submit(() -> cache.get());
+            Future<ExpositionCache.Payload> third = executor.submit(() -> cache.get());
+            Thread.sleep(100);
+            release.countDown();
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertSame(first.get(), third.get());
+            Assert.assertEquals(1, collects.get());
+
+            cache.get();
+            Assert.assertEquals(2, collects.get());
+        } finally {
+            executor.shutdownNow();
+            cache.close();
+        }
+    }
+
+    private static String text(ExpositionCache.Payload payload) {
+        return new String(payload.getText(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.exposition;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.SampleNameFilter;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioExpositionServerTest {
+    private ExpositionCache cache;
+    private NioExpositionServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge.build().name("test_nio_gauge").help("test").register(registry).set(7);
+        Gauge.build().name("test_nio_other").help("test").register(registry).set(8);
+        cache = new ExpositionCache(registry, SampleNameFilter.ALLOW_ALL, 60_000, false, true);
+        server = new NioExpositionServer(new InetSocketAddress("127.0.0.1", 0), cache, 1, 2_000);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        cache.close();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        HttpURLConnection connection = open("/metrics");
+        Assert.assertEquals(200, connection.getResponseCode());
+        String body = read(connection.getInputStream());
+        Assert.assertTrue(body.contains("test_nio_gauge 7.0"));
+        Assert.assertTrue(body.contains("test_nio_other 8.0"));
+
+        connection = open("/metrics?name[]=test_nio_gauge");
+        body = read(connection.getInputStream());
+        Assert.assertTrue(body.contains("test_nio_gauge 7.0"));
+        Assert.assertFalse(body.contains("test_nio_other"));
+
+        connection = open("/metrics");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        Assert.assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        body = read(new GZIPInputStream(connection.getInputStream()));
+        Assert.assertTrue(body.contains("test_nio_gauge 7.0"));
+
+        Assert.assertEquals("Exporter is Healthy.", read(open("/-/healthy").getInputStream()));
+        Assert.assertEquals(404, open("/other").getResponseCode());
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            String request = "GET /-/healthy HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            out.write((request + request).getBytes(StandardCharsets.US_ASCII));
+            out.write(
+                    "HEAD /metrics HTTP/1.1\r\nConnection: close\r\n\r\n"
+                            .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String responses = read(socket.getInputStream());
+            Assert.assertEquals(3, responses.split("HTTP/1.1 200 OK").length - 1);
+            Assert.assertEquals(2, responses.split("Exporter is Healthy.").length - 1);
+            Assert.assertTrue(responses.endsWith("Connection: close\r\n\r\n"));
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write("GET /metrics".getBytes(StandardCharsets.US_ASCII));
+            long start = System.currentTimeMillis();
+            Assert.assertEquals(-1, socket.getInputStream().read());
+            Assert.assertTrue(System.currentTimeMillis() - start < 10_000);
+        }
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        return (HttpURLConnection)
+                new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    private static String read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        in.close();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
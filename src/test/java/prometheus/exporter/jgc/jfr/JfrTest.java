@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.jfr;
+
+import io.prometheus.client.Collector;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Collections;
+import jdk.jfr.Recording;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+
+public class JfrTest {
+
+    @Test
+    public void testConsume() throws Exception {
+        File dir = Files.createTempDirectory("jfr").toFile();
+        dir.deleteOnExit();
+        File chunk = new File(dir, "chunk.jfr");
+        chunk.deleteOnExit();
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.GarbageCollection");
+            recording.enable("jdk.GCPhasePause");
+            recording.enable("jdk.GCHeapSummary");
+            recording.enable("jdk.G1GarbageCollection");
+            recording.enable("jdk.G1HeapRegionInformation");
+            recording.start();
+            System.gc();
+            recording.stop();
+            recording.dump(chunk.toPath());
+        }
+
+        JfrEventHandler handler = new JfrEventHandler(dir);
+        handler.consume(chunk);
+        Assert.assertTrue(count("jgc_event_duration_seconds", dir.getPath()) > 0);
+        Assert.assertTrue(count("jgc_event_pause_duration_seconds", dir.getPath()) > 0);
+        Assert.assertTrue(count("jgc_heap_occupancy_after_collection_bytes", dir.getPath()) > 0);
+        if (ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .anyMatch(bean -> bean.getName().startsWith("G1"))) {
+            Assert.assertEquals(6, count("jgc_jfr_g1_regions", dir.getPath()));
+            Assert.assertTrue(
+                    count("jgc_event_pause_duration_seconds", dir.getPath(), "G1SystemGC") > 0);
+        }
+
+        handler.close();
+        Assert.assertEquals(0, count("jgc_event_duration_seconds", dir.getPath()));
+    }
+
+    @Test
+    public void testCategory() {
+        Assert.assertEquals(
+                "G1YoungGC",
+                JfrEventHandler.category("G1New", "G1 Evacuation Pause", "Normal", null));
+        Assert.assertEquals(
+                "G1MixedGC",
+                JfrEventHandler.category("G1New", "G1 Evacuation Pause", "Mixed", null));
+        Assert.assertEquals(
+                "G1YoungGC",
+                JfrEventHandler.category("G1New", "G1 Evacuation Pause", "Prepare Mixed", null));
+        Assert.assertEquals(
+                "G1InitialMark",
+                JfrEventHandler.category(
+                        "G1New", "G1 Humongous Allocation", "Concurrent Start", null));
+        Assert.assertEquals(
+                "G1Remark",
+                JfrEventHandler.category("G1Old", "G1 Periodic Collection", null, "Pause Remark"));
+        Assert.assertEquals(
+                "G1Cleanup",
+                JfrEventHandler.category("G1Old", "G1 Periodic Collection", null, "Pause Cleanup"));
+        Assert.assertEquals(
+                "G1SystemGC", JfrEventHandler.category("G1Full", "System.gc()", null, null));
+        Assert.assertEquals(
+                "PSYoungGC",
+                JfrEventHandler.category("ParallelScavenge", "Allocation Failure", null, null));
+        Assert.assertEquals(
+                "ZGCAllocRate", JfrEventHandler.category("Z", "Allocation Rate", null, null));
+        Assert.assertEquals(
+                "Unknown",
+                JfrEventHandler.category("Shenandoah", "Allocation Failure", null, null));
+    }
+
+    private static long count(String name, String path) {
+        return count(name, path, path);
+    }
+
+    private static long count(String name, String path, String label) {
+        long count = 0;
+        for (Collector.MetricFamilySamples mfs :
+                Collections.list(MetricRegistry.SINGLETON.metricFamilySamples())) {
+            for (Collector.MetricFamilySamples.Sample sample : mfs.samples) {
+                if (sample.name.startsWith(name)
+                        && sample.labelValues.contains(path)
+                        && sample.labelValues.contains(label)) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DDSketchTest {
+
+    @Test
+    public void testRelativeError() {
+        Random random = new Random(7);
+        double[] values = new double[100_000];
+        DDSketch sketch = new DDSketch(0.01);
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = Math.exp(random.nextGaussian() * 2 - 4);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] {0.01, 0.5, 0.9, 0.99, 0.999}) {
+            double expected = values[(int) (q * (values.length - 1))];
+            Assert.assertEquals(expected, sketch.quantile(q), expected * 0.01);
+        }
+        Assert.assertEquals(values.length, sketch.getCount());
+        Assert.assertEquals(values[0], sketch.quantile(0), 0.0);
+        Assert.assertEquals(values[values.length - 1], sketch.quantile(1), 0.0);
+    }
+
+    @Test
+    public void testMerge() {
+        DDSketch a = new DDSketch(0.02);
+        DDSketch b = new DDSketch(0.02);
+        DDSketch all = new DDSketch(0.02);
+        for (int i = 1; i <= 1000; ++i) {
+            (i % 3 == 0 ? a : b).add(i / 1000.0);
+            all.add(i / 1000.0);
+        }
+        b.add(0);
+        all.add(0);
+        a.merge(b);
+        Assert.assertEquals(all.getCount(), a.getCount());
+        Assert.assertEquals(all.getSum(), a.getSum(), 1e-9);
+        Assert.assertArrayEquals(all.getCounts(), a.getCounts());
+        Assert.assertEquals(all.quantile(0.999), a.quantile(0.999), 0.0);
+        Assert.assertThrows(IllegalArgumentException.class, () -> a.merge(new DDSketch(0.01)));
+    }
+
+    @Test
+    public void testCollapse() {
+        DDSketch sketch = new DDSketch(0.001);
+        int n = 0;
+        double previous = 0;
+        for (double v = 1e-6; v < 1e6; v *= 1.5, ++n) {
+            previous = sketch.getMax();
+            sketch.add(v);
+        }
+        Assert.assertTrue(sketch.getCounts().length <= DDSketch.MAX_BUCKETS);
+        // the lowest values are collapsed, the highest keep their accuracy
+        Assert.assertEquals(previous, sketch.quantile((n - 2.0) / (n - 1)), previous * 0.001);
+        Assert.assertTrue(sketch.quantile(0.01) > 1e-6 * 1.5);
+    }
+}
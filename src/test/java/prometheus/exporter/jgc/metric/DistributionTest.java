@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DistributionTest {
+
+    @After
+    public void tearDown() {
+        Distribution.configure(null, null);
+        Distribution.configureSketches(null, DDSketch.DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void testLogLinearBuckets() {
+        double[] buckets = Distribution.logLinearBuckets(0.001, 2);
+        Assert.assertArrayEquals(
+                new double[] {0.001, 0.002, 0.005, 0.01, 0.02, 0.05, 0.1}, buckets, 0.0);
+    }
+
+    @Test
+    public void testDecayingSummary() {
+        Distribution.configure(Collections.singletonList("*"), null);
+        Distribution.configureSketches(
+                Collections.singletonList("*"), DDSketch.DEFAULT_RELATIVE_ACCURACY);
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_decaying_seconds")
+                        .help("test")
+                        .maxAgeSeconds(60)
+                        .quantile(0.5, 0.05)
+                        .create();
+        Assert.assertFalse(distribution.isHistogram());
+        Assert.assertFalse(distribution.isSketch());
+    }
+
+    @Test
+    public void testDefaultHistogram() {
+        Distribution.configureSketches(
+                Collections.singletonList("*"), DDSketch.DEFAULT_RELATIVE_ACCURACY);
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_default_histogram_seconds")
+                        .help("test")
+                        .histogram()
+                        .create();
+        Assert.assertTrue(distribution.isHistogram());
+        Assert.assertFalse(distribution.isSketch());
+    }
+
+    @Test
+    public void testHistogram() {
+        Distribution.configure(
+                Collections.singletonList("test_histogram_seconds"),
+                Collections.singletonMap("test_histogram_seconds", Arrays.asList(0.1, 0.01)));
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_histogram_seconds")
+                        .help("test")
+                        .labelNames("path")
+                        .create();
+        Assert.assertTrue(distribution.isHistogram());
+        Distribution.Child child = distribution.labels("a");
+        child.observe(0.01);
+        child.observe(0.05);
+        child.observe(1);
+
+        CollectorRegistry registry = new CollectorRegistry();
+        registry.register(distribution);
+        String[] names = {"path", "le"};
+        Assert.assertEquals(
+                1.0,
+                registry.getSampleValue(
+                        "test_histogram_seconds_bucket", names, new String[] {"a", "0.01"}),
+                0.0);
+        Assert.assertEquals(
+                2.0,
+                registry.getSampleValue(
+                        "test_histogram_seconds_bucket", names, new String[] {"a", "0.1"}),
+                0.0);
+        Assert.assertEquals(
+                3.0,
+                registry.getSampleValue(
+                        "test_histogram_seconds_bucket", names, new String[] {"a", "+Inf"}),
+                0.0);
+        Assert.assertEquals(
+                1.06,
+                registry.getSampleValue(
+                        "test_histogram_seconds_sum", new String[] {"path"}, new String[] {"a"}),
+                1e-9);
+        Assert.assertEquals(
+                Collector.Type.HISTOGRAM,
+                Collections.list(registry.metricFamilySamples()).get(0).type);
+
+        List<Collector.MetricFamilySamples.Sample> sums =
+                distribution.collect(name -> name.endsWith("_sum")).get(0).samples;
+        Assert.assertEquals(1, sums.size());
+        Assert.assertEquals("test_histogram_seconds_sum", sums.get(0).name);
+    }
+
+    @Test
+    public void testSummary() {
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_summary_seconds")
+                        .help("test")
+                        .labelNames("path")
+                        .quantile(0.5, 0.05)
+                        .create();
+        Assert.assertFalse(distribution.isHistogram());
+        distribution.labels("a").observe(1);
+        distribution.labels("a").observe(3);
+
+        CollectorRegistry registry = new CollectorRegistry();
+        registry.register(distribution);
+        Assert.assertEquals(
+                2.0,
+                registry.getSampleValue(
+                        "test_summary_seconds_count", new String[] {"path"}, new String[] {"a"}),
+                0.0);
+        Assert.assertEquals(
+                Collector.Type.SUMMARY,
+                Collections.list(registry.metricFamilySamples()).get(0).type);
+    }
+
+    @Test
+    public void testSketch() {
+        Distribution.configureSketches(Collections.singletonList("test_sketch_seconds"), 0.01);
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_sketch_seconds")
+                        .help("test")
+                        .labelNames("path")
+                        .quantile(0.99, 0.001)
+                        .create();
+        Assert.assertTrue(distribution.isSketch());
+        Assert.assertFalse(distribution.isHistogram());
+        for (int i = 1; i <= 1000; ++i) {
+            distribution.labels("a").observe(i);
+        }
+
+        CollectorRegistry registry = new CollectorRegistry();
+        registry.register(distribution);
+        Assert.assertEquals(
+                990,
+                registry.getSampleValue(
+                        "test_sketch_seconds",
+                        new String[] {"path", "quantile"},
+                        new String[] {"a", "0.99"}),
+                990 * 0.01);
+        Assert.assertEquals(
+                1000.0,
+                registry.getSampleValue(
+                        "test_sketch_seconds_count", new String[] {"path"}, new String[] {"a"}),
+                0.0);
+        Assert.assertEquals(
+                Collector.Type.SUMMARY,
+                Collections.list(registry.metricFamilySamples()).get(0).type);
+        Assert.assertEquals(1, distribution.sketches().size());
+    }
+}
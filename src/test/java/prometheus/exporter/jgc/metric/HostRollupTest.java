@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+public class HostRollupTest {
+    private final String host = OperatingSystem.getLocalHostName();
+
+    @After
+    public void tearDown() {
+        HostRollup.configure(false);
+    }
+
+    @Test
+    public void testRollup() {
+        HostRollup.configure(true);
+        HostRollup a = new HostRollup();
+        HostRollup b = new HostRollup();
+        double now = System.currentTimeMillis() / 1000.0;
+        a.pause("G1YoungGC", 0.1, now);
+        b.pause("G1YoungGC", 0.3, now);
+        b.pause("G1FullGC", 2, now);
+        a.heapOccupancy(100);
+        b.heapOccupancy(200);
+        a.heapOccupancy(50);
+
+        Assert.assertEquals(2.4, value("jgc_host_pause_seconds_total"), 1e-9);
+        Assert.assertEquals(
+                2.0,
+                MetricRegistry.SINGLETON.getSampleValue(
+                        "jgc_host_pauses_total",
+                        new String[] {"host", "category"},
+                        new String[] {host, "G1YoungGC"}),
+                0.0);
+        Assert.assertEquals(
+                2.0,
+                MetricRegistry.SINGLETON.getSampleValue(
+                        "jgc_host_window_pause_duration_seconds",
+                        new String[] {"host", "window", "quantile"},
+                        new String[] {host, "1m", "1.0"}),
+                0.0);
+        Assert.assertEquals(250, value("jgc_host_heap_occupancy_after_collection_bytes"), 0.0);
+
+        // the heap of a closed log is taken back
+        b.close();
+        Assert.assertEquals(50, value("jgc_host_heap_occupancy_after_collection_bytes"), 0.0);
+    }
+
+    @Test
+    public void testDisabled() {
+        HostRollup rollup = new HostRollup();
+        rollup.pause("G1YoungGC", 0.1, System.currentTimeMillis() / 1000.0);
+        rollup.heapOccupancy(100);
+        Assert.assertNull(value("jgc_host_pause_seconds_total"));
+    }
+
+    private Double value(String name) {
+        return MetricRegistry.SINGLETON.getSampleValue(
+                name, new String[] {"host"}, new String[] {host});
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Predicate;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricRegistryTest {
+    private final Object first = new Object();
+    private final Object second = new Object();
+
+    @After
+    public void tearDown() {
+        MetricRegistry.detach(first);
+        MetricRegistry.detach(second);
+    }
+
+    @Test
+    public void testWrite004() throws Exception {
+        GC_LOG_LINES.attach(first, "a.log", "host").inc(3);
+        GC_LOG_LINES.attach(second, "b.log", "host").inc(5);
+        HEAP_SIZE_AFTER_COLLECTION.attach(first, "a.log\n\"x\"", "host").set(1024);
+        GC_EVENT_PAUSE_DURATION.attach(second, "b.log", "host", "Young").observe(0.01);
+
+        assertSameLines(null);
+        assertSameLines(name -> !name.endsWith("_created"));
+        assertSameLines(name -> name.equals("jgc_log_lines_total"));
+    }
+
+    @Test
+    public void testFilteredCollect() {
+        GC_LOG_LINES.attach(first, "a.log", "host").inc(3);
+        HEAP_SIZE_AFTER_COLLECTION.attach(first, "a.log", "host").set(1024);
+
+        Assert.assertTrue(
+                HEAP_SIZE_AFTER_COLLECTION.collect(name -> name.startsWith("jgc_log")).isEmpty());
+        List<Collector.MetricFamilySamples> families =
+                Collections.list(
+                        SINGLETON.filteredMetricFamilySamples(
+                                name -> name.equals("jgc_log_lines_total")));
+        Assert.assertEquals(1, families.size());
+        for (Collector.MetricFamilySamples.Sample sample : families.get(0).samples) {
+            Assert.assertEquals("jgc_log_lines_total", sample.name);
+        }
+        Assert.assertEquals(
+                3.0,
+                SINGLETON.getSampleValue(
+                        "jgc_log_lines_total",
+                        new String[] {"path", "host"},
+                        new String[] {"a.log", "host"}),
+                0.0);
+    }
+
+    @Test
+    public void testConfigure() {
+        try {
+            MetricRegistry.configure(
+                    Arrays.asList("jgc_log_lines_total", "jgc_heap_*", "jgc_event_pause_*"),
+                    Collections.singletonList("jgc_heap_size_*"));
+            Assert.assertTrue(GC_LOG_LINES.isEnabled());
+            Assert.assertTrue(HEAP_OCCUPANCY_AFTER_COLLECTION.isEnabled());
+            Assert.assertFalse(HEAP_SIZE_AFTER_COLLECTION.isEnabled());
+            Assert.assertFalse(GC_EVENT_DURATION.isEnabled());
+
+            HEAP_SIZE_AFTER_COLLECTION.attach(first, "a.log", "host").set(1024);
+            GC_EVENT_DURATION.attach(first, "a.log", "host", "Young").observe(1);
+            Assert.assertSame(
+                    Distribution.Child.NOOP,
+                    GC_EVENT_DURATION.attach(second, "b.log", "host", "Young"));
+            Assert.assertNull(
+                    SINGLETON.getSampleValue(
+                            "jgc_heap_size_after_collection_bytes",
+                            new String[] {"path", "host"},
+                            new String[] {"a.log", "host"}));
+            Assert.assertNull(
+                    SINGLETON.getSampleValue(
+                            "jgc_event_duration_seconds_count",
+                            new String[] {"path", "host", "category"},
+                            new String[] {"a.log", "host", "Young"}));
+        } finally {
+            MetricRegistry.configure(null, null);
+        }
+    }
+
+    private static void assertSameLines(Predicate<String> filter) throws Exception {
+        StringWriter expected = new StringWriter();
+        TextFormat.write004(expected, SINGLETON.filteredMetricFamilySamples(filter));
+        StringWriter actual = new StringWriter();
+        SINGLETON.write004(actual, filter);
+        Assert.assertEquals(sortedLines(expected), sortedLines(actual));
+    }
+
+    private static String sortedLines(StringWriter writer) {
+        String[] lines = writer.toString().split("\n");
+        Arrays.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    @Test
+    public void testEvict() {
+        Object targetA = new Object();
+        Object targetB = new Object();
+        MetricBinding a = new MetricBinding(targetA, "test_evict_a", "host");
+        MetricBinding b = new MetricBinding(targetB, "test_evict_b", "host");
+        a.get(GC_LOG_LINES).inc();
+        b.get(GC_LOG_LINES).inc();
+        Lease leaseA = MetricRegistry.lease(targetA);
+        Lease leaseB = MetricRegistry.lease(targetB);
+        leaseA.updatedAt = 1_000;
+        leaseB.updatedAt = 2_000;
+        List<Lease> leases = Arrays.asList(leaseB, leaseA);
+        Assert.assertEquals(
+                Collections.singletonMap("stale", 1),
+                MetricRegistry.evict(leases, 2_500, 1_000, 0));
+        Assert.assertNull(lines("test_evict_a"));
+        Assert.assertEquals(1.0, lines("test_evict_b"), 0.0);
+
+        // an evicted target starts over once updated again
+        a.get(GC_LOG_LINES).inc();
+        Assert.assertEquals(1.0, lines("test_evict_a"), 0.0);
+        leaseA = MetricRegistry.lease(targetA);
+        Assert.assertEquals(1, leaseA.series.get());
+
+        // b was updated before a
+        leases = Arrays.asList(leaseA, leaseB);
+        Assert.assertEquals(
+                Collections.singletonMap("limit", 1),
+                MetricRegistry.evict(leases, leaseA.updatedAt, 0, 1));
+        Assert.assertNull(lines("test_evict_b"));
+        Assert.assertEquals(1.0, lines("test_evict_a"), 0.0);
+        MetricRegistry.detach(targetA);
+    }
+
+    @Test
+    public void testEvictWhileUpdated() throws Exception {
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            leases.add(MetricRegistry.lease(new Object()));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread updater =
+                new Thread(
+                        () -> {
+                            Random random = new Random();
+                            while (running.get()) {
+                                leases.get(random.nextInt(leases.size())).updatedAt =
+                                        random.nextLong();
+                            }
+                        });
+        updater.start();
+        try {
+            // sorting leases updated meanwhile must not break the comparator contract
+            for (int i = 0; i < 200; ++i) {
+                Assert.assertTrue(
+                        MetricRegistry.evict(leases, System.currentTimeMillis(), 0, 0).isEmpty());
+            }
+        } finally {
+            running.set(false);
+            updater.join();
+            leases.forEach(lease -> MetricRegistry.detach(lease.target));
+        }
+    }
+
+    @Test
+    public void testRenew() {
+        Object target = new Object();
+        MetricBinding binding = new MetricBinding(target, "test_renew", "host");
+        binding.onRenew(() -> binding.get(GC_COLLECT_FILES).set(1));
+        binding.get(GC_COLLECT_FILES).set(1);
+        binding.get(GC_PROCESS_INFO, "1", "Main").set(1);
+        binding.get(GC_PROCESS_INFO, "1", "Main").set(1);
+        Lease lease = MetricRegistry.lease(target);
+        Assert.assertEquals(2, lease.series.get());
+
+        binding.remove(GC_PROCESS_INFO);
+        Assert.assertEquals(1, lease.series.get());
+        Assert.assertNull(processInfo("test_renew"));
+        binding.get(GC_PROCESS_INFO, "2", "Main").set(1);
+        Assert.assertEquals(1.0, processInfo("test_renew"), 0.0);
+
+        // series only set at start come back along with the next update
+        int generation = binding.generation();
+        MetricRegistry.evict(Collections.singletonList(lease), lease.updatedAt, 0, 1);
+        Assert.assertNull(collectFiles("test_renew"));
+        Assert.assertTrue(binding.touch());
+        Assert.assertNotEquals(generation, binding.generation());
+        Assert.assertEquals(1.0, collectFiles("test_renew"), 0.0);
+        Assert.assertEquals(1, MetricRegistry.lease(target).series.get());
+        Assert.assertFalse(binding.touch());
+        MetricRegistry.detach(target);
+    }
+
+    @Test
+    public void testClosedBinding() {
+        Object target = new Object();
+        MetricBinding binding = new MetricBinding(target, "test_closed", "host");
+        binding.get(GC_LOG_LINES).inc();
+        binding.close();
+        MetricRegistry.detach(target);
+        Assert.assertNull(lines("test_closed"));
+
+        // a late update of a closed target is dropped, even once its lease was evicted
+        MetricRegistry.lease(target).evicted = true;
+        binding.get(GC_LOG_LINES).inc();
+        binding.get(GC_EVENT_PAUSE_DURATION, "Young").observe(0.01);
+        Assert.assertNull(lines("test_closed"));
+        MetricRegistry.detach(target);
+    }
+
+    private static Double collectFiles(String path) {
+        return MetricRegistry.SINGLETON.getSampleValue(
+                "jgc_collect_files", new String[] {"path", "host"}, new String[] {path, "host"});
+    }
+
+    private static Double processInfo(String path) {
+        return MetricRegistry.SINGLETON.getSampleValue(
+                "jgc_process_info",
+                new String[] {"path", "host", "pid", "main_class"},
+                new String[] {path, "host", "2", "Main"});
+    }
+
+    private static Double lines(String path) {
+        return MetricRegistry.SINGLETON.getSampleValue(
+                "jgc_log_lines_total", new String[] {"path", "host"}, new String[] {path, "host"});
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.Collector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+public class PathLabelsTest {
+
+    @After
+    public void tearDown() {
+        PathLabels.configure(null, null, 0);
+    }
+
+    @Test
+    public void testDefault() {
+        Assert.assertArrayEquals(new String[] {"path", "host"}, PathLabels.names("host"));
+        Assert.assertArrayEquals(
+                new String[] {"/var/log/gc.log", "host"},
+                PathLabels.values("/var/log/gc.log", "host"));
+    }
+
+    @Test
+    public void testRules() {
+        PathLabels.configure(
+                Arrays.asList(
+                        "/var/log/pods/(?<namespace>[^_]+)_(?<pod>[^_]+)_[^/]+/(?<app>[^/]+)/.*",
+                        "(?<path>.*/gc)\\.log\\.\\d+"),
+                Arrays.asList("namespace", "pod", "app", "path"),
+                0);
+        Assert.assertArrayEquals(
+                new String[] {"namespace", "pod", "app", "path", "host", "category"},
+                PathLabels.names("host", "category"));
+        Assert.assertArrayEquals(
+                new String[] {"prod", "web-0", "web", "", "host"},
+                PathLabels.values("/var/log/pods/prod_web-0_0f4e8a/web/gc.log", "host"));
+        // the rotation suffix is dropped
+        Assert.assertArrayEquals(
+                new String[] {"", "", "", "/opt/app/gc", "host"},
+                PathLabels.values("/opt/app/gc.log.3", "host"));
+        Assert.assertArrayEquals(
+                new String[] {"", "", "", "/opt/app/out.log", "host"},
+                PathLabels.values("/opt/app/out.log", "host"));
+    }
+
+    @Test
+    public void testLimit() {
+        PathLabels.configure(
+                Collections.singletonList("/logs/(?<pod>[^/]+)/gc\\.log"),
+                Collections.singletonList("pod"),
+                2);
+        double overflows = overflows();
+        Assert.assertEquals("a", PathLabels.acquire("/logs/a/gc.log")[0]);
+        Assert.assertEquals("b", PathLabels.acquire("/logs/b/gc.log")[0]);
+        Assert.assertEquals(PathLabels.OTHER, PathLabels.acquire("/logs/c/gc.log")[0]);
+        Assert.assertEquals("a", PathLabels.acquire("/logs/a/gc.log")[0]);
+        Assert.assertEquals(1.0, overflows() - overflows, 0.0);
+
+        // a value is live until its last holder releases it
+        PathLabels.release("/logs/a/gc.log");
+        Assert.assertEquals(PathLabels.OTHER, PathLabels.values("/logs/d/gc.log")[0]);
+        PathLabels.release("/logs/a/gc.log");
+        Assert.assertEquals("d", PathLabels.acquire("/logs/d/gc.log")[0]);
+        Assert.assertEquals(PathLabels.OTHER, PathLabels.acquire("/logs/a/gc.log")[0]);
+        // a folded path is mapped again once released
+        PathLabels.release("/logs/c/gc.log");
+        PathLabels.release("/logs/b/gc.log");
+        Assert.assertEquals("c", PathLabels.acquire("/logs/c/gc.log")[0]);
+    }
+
+    @Test
+    public void testFold() {
+        PathLabels.configure(
+                Collections.singletonList("/logs/(?<pod>[^/]+)/gc\\.log"),
+                Collections.singletonList("pod"),
+                1);
+        List<Object> targets = Arrays.asList(new Object(), new Object(), new Object());
+        MetricBinding a = MetricBinding.forPath(targets.get(0), "/logs/a/gc.log", "test");
+        MetricBinding c = MetricBinding.forPath(targets.get(1), "/logs/c/gc.log", "test");
+        MetricBinding d = MetricBinding.forPath(targets.get(2), "/logs/d/gc.log", "test");
+        try {
+            c.get(MetricRegistry.GC_LOG_LINES).inc();
+            d.get(MetricRegistry.GC_LOG_LINES).inc(2);
+            c.get(MetricRegistry.HEAP_OCCUPANCY_AFTER_COLLECTION).set(100);
+            d.get(MetricRegistry.HEAP_OCCUPANCY_AFTER_COLLECTION).set(200);
+            double now = System.currentTimeMillis() / 1000.0;
+            c.get(MetricRegistry.GC_EVENT_WINDOW_PAUSE_DURATION).observe(0.1, now);
+            d.get(MetricRegistry.GC_EVENT_WINDOW_PAUSE_DURATION).observe(0.3, now);
+            d.get(MetricRegistry.GC_EVENT_WINDOW_PAUSE_DURATION).observe(0.2, now);
+            c.get(MetricRegistry.GC_EVENT_PAUSE_DURATION, "Young").observe(0.1);
+            d.get(MetricRegistry.GC_EVENT_PAUSE_DURATION, "Young").observe(0.2);
+
+            Assert.assertEquals(3.0, value("jgc_log_lines_total"), 0.0);
+            // gauges cannot be merged
+            Assert.assertNull(value("jgc_heap_occupancy_after_collection_bytes"));
+            String window = "jgc_event_window_pause_duration_seconds";
+            Assert.assertEquals(0.1, value(window, "window", "1m", "quantile", "0.0"), 0.0);
+            Assert.assertEquals(0.3, value(window, "window", "1m", "quantile", "1.0"), 0.0);
+            Assert.assertEquals(3.0, value(window + "_count", "window", "1m"), 0.0);
+            String pause = "jgc_event_pause_duration_seconds";
+            Assert.assertEquals(2.0, value(pause + "_count", "category", "Young"), 0.0);
+            Assert.assertEquals(0.3, value(pause + "_sum", "category", "Young"), 1e-9);
+            // the path of its own is not folded
+            a.get(MetricRegistry.HEAP_OCCUPANCY_AFTER_COLLECTION).set(300);
+            Assert.assertEquals(
+                    300.0,
+                    MetricRegistry.SINGLETON.getSampleValue(
+                            "jgc_heap_occupancy_after_collection_bytes",
+                            new String[] {"pod", "host"},
+                            new String[] {"a", "test"}),
+                    0.0);
+        } finally {
+            for (MetricBinding binding : Arrays.asList(a, c, d)) {
+                binding.close();
+            }
+            targets.forEach(MetricRegistry::detach);
+        }
+    }
+
+    @Test
+    public void testCollision() {
+        PathLabels.configure(
+                Collections.singletonList("/logs/(?<app>[^/]+)/gc\\.log.*"),
+                Collections.singletonList("app"),
+                0);
+        List<Object> targets = Arrays.asList(new Object(), new Object());
+        MetricBinding log = MetricBinding.forPath(targets.get(0), "/logs/shop/gc.log", "test");
+        Assert.assertFalse(PathLabels.isFolding());
+        MetricBinding rotated =
+                MetricBinding.forPath(targets.get(1), "/logs/shop/gc.log.1", "test");
+        try {
+            // both live paths map to the same labels, so their series are merged
+            Assert.assertTrue(PathLabels.isFolding());
+            log.get(MetricRegistry.GC_LOG_LINES).inc(4);
+            rotated.get(MetricRegistry.GC_LOG_LINES).inc(3);
+            List<Double> values = new ArrayList<>();
+            for (Collector.MetricFamilySamples family : MetricRegistry.GC_LOG_LINES.collect()) {
+                for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                    if (sample.name.equals("jgc_log_lines_total")
+                            && sample.labelValues.equals(Arrays.asList("shop", "test"))) {
+                        values.add(sample.value);
+                    }
+                }
+            }
+            Assert.assertEquals(Collections.singletonList(7.0), values);
+        } finally {
+            log.close();
+            rotated.close();
+            targets.forEach(MetricRegistry::detach);
+        }
+    }
+
+    /** Sample of the series folded into other, labels after the path labels as name and value. */
+    private static Double value(String name, String... labels) {
+        String[] names = new String[2 + labels.length / 2];
+        String[] values = new String[names.length];
+        names[0] = "pod";
+        values[0] = PathLabels.OTHER;
+        names[1] = "host";
+        values[1] = "test";
+        for (int i = 0; i < labels.length; i += 2) {
+            names[2 + i / 2] = labels[i];
+            values[2 + i / 2] = labels[i + 1];
+        }
+        return MetricRegistry.SINGLETON.getSampleValue(name, names, values);
+    }
+
+    private static double overflows() {
+        Double value =
+                MetricRegistry.SINGLETON.getSampleValue(
+                        "jgc_path_label_overflows_total",
+                        new String[] {"host", "label"},
+                        new String[] {OperatingSystem.getLocalHostName(), "pod"});
+        return value == null ? 0 : value;
+    }
+}
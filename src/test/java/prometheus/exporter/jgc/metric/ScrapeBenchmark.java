@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Predicate;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Render the metrics page of {@code files} targets with {@code families} metrics each, run it from
+ * the project directory after test-compile: {@code java -cp
+ * target/test-classes:target/classes:<test classpath>
+ * prometheus.exporter.jgc.metric.ScrapeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScrapeBenchmark {
+    private static final Predicate<String> FILTER = name -> !name.endsWith("_created");
+
+    @Param({"10", "100", "500"})
+    private int files;
+
+    @Param({"10", "50"})
+    private int families;
+
+    private final List<Object> targets = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        List<Metric<?, ?>> metrics = new ArrayList<>();
+        for (Field field : MetricRegistry.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers())
+                    && Metric.class.isAssignableFrom(field.getType())) {
+                metrics.add((Metric<?, ?>) field.get(null));
+            }
+        }
+        for (int i = 0; i < files; ++i) {
+            Object target = new Object();
+            targets.add(target);
+            int attached = 0;
+            for (Metric<?, ?> metric : metrics) {
+                if (attached == families) {
+                    break;
+                }
+                try {
+                    record(metric.attach(target, "/var/log/app-" + i + "/gc.log", "host"));
+                    ++attached;
+                } catch (IllegalArgumentException ex) {
+                    // other labels than path and host
+                    metric.detach(target);
+                }
+            }
+        }
+    }
+
+    private static void record(Object child) {
+        if (child instanceof Distribution.Child) {
+            ((Distribution.Child) child).observe(0.01);
+        } else if (child instanceof Gauge.Child) {
+            ((Gauge.Child) child).set(1024);
+        } else if (child instanceof Counter.Child) {
+            ((Counter.Child) child).inc();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        targets.forEach(MetricRegistry::detach);
+        targets.clear();
+    }
+
+    @Benchmark
+    public void textFormat() throws Exception {
+        TextFormat.write004(
+                Writer.nullWriter(), MetricRegistry.SINGLETON.filteredMetricFamilySamples(FILTER));
+    }
+
+    @Benchmark
+    public void singlePass() throws Exception {
+        MetricRegistry.SINGLETON.write004(Writer.nullWriter(), FILTER);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ScrapeBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
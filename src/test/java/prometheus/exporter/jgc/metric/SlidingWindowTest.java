@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.metric;
+
+import io.prometheus.client.CollectorRegistry;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SlidingWindowTest {
+
+    @Test
+    public void testEventTime() {
+        SlidingWindow window =
+                SlidingWindow.build()
+                        .name("test_window_seconds")
+                        .help("test")
+                        .labelNames("path")
+                        .create();
+        CollectorRegistry registry = new CollectorRegistry();
+        registry.register(window);
+        SlidingWindow.Child child = window.labels("a");
+        // twenty minutes of a replayed log, read at once
+        double start = 1_700_000_000;
+        for (int i = 0; i < 120; ++i) {
+            child.observe(i, start + i * 10);
+        }
+        Assert.assertEquals(6.0, count(registry, "1m"), 0.0);
+        Assert.assertEquals(30.0, count(registry, "5m"), 0.0);
+        Assert.assertEquals(90.0, count(registry, "15m"), 0.0);
+        Assert.assertEquals(114.0, quantile(registry, "1m", "0.0"), 0.0);
+        Assert.assertEquals(119.0, quantile(registry, "15m", "1.0"), 0.0);
+        Assert.assertEquals(
+                114 + 115 + 116 + 117 + 118 + 119,
+                registry.getSampleValue(
+                        "test_window_seconds_sum",
+                        new String[] {"path", "window"},
+                        new String[] {"a", "1m"}),
+                0.0);
+
+        // late within the ring
+        child.observe(1000, start + 1185);
+        Assert.assertEquals(7.0, count(registry, "1m"), 0.0);
+        Assert.assertEquals(1000.0, quantile(registry, "1m", "1.0"), 0.0);
+
+        // restarted uptime clock
+        child.observe(0.5, 3.2);
+        Assert.assertEquals(1.0, count(registry, "15m"), 0.0);
+        Assert.assertEquals(0.5, quantile(registry, "1m", "0.0"), 0.0);
+    }
+
+    @Test
+    public void testConfigure() {
+        try {
+            SlidingWindow.configure(Arrays.asList(30, 10));
+            SlidingWindow window =
+                    SlidingWindow.build().name("test_window_configure").help("test").create();
+            window.observe(1, 100);
+            CollectorRegistry registry = new CollectorRegistry();
+            registry.register(window);
+            Assert.assertEquals(
+                    1.0,
+                    registry.getSampleValue(
+                            "test_window_configure_count",
+                            new String[] {"window"},
+                            new String[] {"10s"}),
+                    0.0);
+        } finally {
+            SlidingWindow.configure(null);
+        }
+    }
+
+    private static double count(CollectorRegistry registry, String window) {
+        return registry.getSampleValue(
+                "test_window_seconds_count",
+                new String[] {"path", "window"},
+                new String[] {"a", window});
+    }
+
+    private static double quantile(CollectorRegistry registry, String window, String quantile) {
+        return registry.getSampleValue(
+                "test_window_seconds",
+                new String[] {"path", "window", "quantile"},
+                new String[] {"a", window, quantile});
+    }
+}
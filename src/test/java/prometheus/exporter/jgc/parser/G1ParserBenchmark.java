@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.parser;
+
+import com.microsoft.gctoolkit.jvm.Diary;
+import com.microsoft.gctoolkit.parser.UnifiedG1GCParser;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare gctoolkit with the fast path on young pauses of jdk11-g1.log, run it from the project
+ * directory after test-compile: {@code java -cp target/test-classes:target/classes:<test classpath>
+ * prometheus.exporter.jgc.parser.G1ParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class G1ParserBenchmark {
+    private static final int PAUSES = 1000;
+    private Diary diary;
+    private List<String> lines;
+
+    @Setup
+    public void setup() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-g1.log");
+        diary = new GCEventHandlerMatcher(log).diary();
+        List<String> source = Files.readAllLines(log.toPath());
+        List<String> pause = new ArrayList<>();
+        for (String line : source) {
+            if (line.contains("GC(87)")) {
+                pause.add(line);
+            }
+        }
+        lines = new ArrayList<>(source.subList(0, 3));
+        for (int i = 0; i < PAUSES; ++i) {
+            for (String line : pause) {
+                lines.add(line.replace("GC(87)", "GC(" + i + ")"));
+            }
+        }
+    }
+
+    @Benchmark
+    public int gctoolkit() {
+        return ParserTest.parse(new UnifiedG1GCParser(), diary, lines).size();
+    }
+
+    @Benchmark
+    public int fast() {
+        return ParserTest.parse(new FastUnifiedG1GCParser(), diary, lines).size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(G1ParserBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
@@ -17,13 +17,33 @@ package prometheus.exporter.jgc.parser;
 
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.*;
+import static prometheus.exporter.jgc.metric.MetricRegistry.*;
 
+import com.microsoft.gctoolkit.event.MemoryPoolSummary;
+import com.microsoft.gctoolkit.event.RegionSummary;
+import com.microsoft.gctoolkit.event.g1gc.G1GCPauseEvent;
+import com.microsoft.gctoolkit.event.jvm.JVMEvent;
 import com.microsoft.gctoolkit.jvm.Diary;
+import com.microsoft.gctoolkit.message.ChannelName;
+import com.microsoft.gctoolkit.message.DataSourceParser;
+import com.microsoft.gctoolkit.message.JVMEventChannel;
+import com.microsoft.gctoolkit.message.JVMEventChannelListener;
+import com.microsoft.gctoolkit.parser.UnifiedG1GCParser;
+import io.prometheus.client.Collector;
+import io.prometheus.client.exemplars.Exemplar;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
+import prometheus.exporter.jgc.Config;
+import prometheus.exporter.jgc.metric.HostRollup;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
 
 public class ParserTest {
 
@@ -87,6 +107,114 @@ public class ParserTest {
         Mockito.verify(handler, Mockito.atLeast(8)).publish(isNotNull(), isNotNull());
     }
 
+    @Test
+    public void testJdk8CMSParallel() throws Exception {
+        File log = new File("src/test/resources/parser/jdk8-cms-and-parnew.log");
+        Diary diary = getDiary(log);
+        Config config = new Config();
+        config.setParallelParsers(true);
+        AbstractJVMEventHandler handler =
+                Mockito.mock(
+                        ClassicGCEventHandler.class,
+                        withSettings()
+                                .useConstructor(log, diary, config)
+                                .defaultAnswer(CALLS_REAL_METHODS));
+        Files.lines(log.toPath()).forEach(handler::consume);
+        // queued lines are parsed before close returns
+        handler.close();
+        Mockito.verify(handler, Mockito.atLeast(8)).publish(isNotNull(), isNotNull());
+    }
+
+    @Test
+    public void testSelfMetrics() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-g1.log");
+        String path = log.getPath();
+        // handlers of other tests may have recorded the same path
+        double received = sum(PARSER_RECEIVE_DURATION, "_count", path);
+        double errors = sum(PARSER_ERRORS, "_total", path);
+        double events = sum(PARSER_EVENTS, "_total", path);
+
+        AbstractJVMEventHandler handler = new G1GCEventHandler(log, getDiary(log));
+        List<String> lines = Files.readAllLines(log.toPath());
+        lines.forEach(handler::consume);
+        Assert.assertEquals(
+                lines.size(), sum(PARSER_RECEIVE_DURATION, "_count", path) - received, 0.0);
+        Assert.assertEquals(errors, sum(PARSER_ERRORS, "_total", path), 0.0);
+        Assert.assertEquals(2, sum(PARSER_EVENTS, "_total", path) - events, 0.0);
+        Assert.assertTrue(sum(PARSER_RECEIVE_DURATION, "_bucket", path) > 0);
+
+        // the children kept by the workers are resolved again once evicted
+        MetricRegistry.detach(handler);
+        received = sum(PARSER_RECEIVE_DURATION, "_count", path);
+        lines.forEach(handler::consume);
+        Assert.assertEquals(
+                lines.size(), sum(PARSER_RECEIVE_DURATION, "_count", path) - received, 0.0);
+        handler.close();
+    }
+
+    @Test
+    public void testHostWindow() throws Exception {
+        HostRollup.configure(true);
+        try {
+            // a long pause of a jvm up for long, then a log of a younger one without dates
+            new HostRollup().pause("G1FullGC", 5, System.currentTimeMillis() / 1000.0);
+            File log = new File("src/test/resources/parser/jdk11-g1.log");
+            AbstractJVMEventHandler handler = new G1GCEventHandler(log, getDiary(log));
+            Files.readAllLines(log.toPath()).forEach(handler::consume);
+            handler.close();
+            Assert.assertEquals(
+                    5.0,
+                    MetricRegistry.SINGLETON.getSampleValue(
+                            "jgc_host_window_pause_duration_seconds",
+                            new String[] {"host", "window", "quantile"},
+                            new String[] {OperatingSystem.getLocalHostName(), "1m", "1.0"}),
+                    0.0);
+        } finally {
+            HostRollup.configure(false);
+        }
+    }
+
+    @Test
+    public void testShed() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-zgc.log");
+        Config config = new Config();
+        config.setShedLagBytes(1);
+        AbstractJVMEventHandler handler =
+                Mockito.mock(
+                        ZGCEventHandler.class,
+                        withSettings()
+                                .useConstructor(log, getDiary(log), config)
+                                .defaultAnswer(CALLS_REAL_METHODS));
+        LoadShedder shedder = new LoadShedder(config);
+        List<String> lines = Files.readAllLines(log.toPath());
+        long lowValue = lines.stream().filter(shedder::isLowValue).count();
+        Assert.assertTrue(lowValue > 0);
+        double shed = sum(GC_SHED_LINES, "_total", log.getPath());
+
+        handler.lag(2);
+        lines.forEach(handler::consume);
+        // pauses are still parsed
+        Mockito.verify(handler, Mockito.times(4)).publish(notNull(), notNull());
+        Assert.assertEquals(lowValue, sum(GC_SHED_LINES, "_total", log.getPath()) - shed, 0.0);
+
+        Assert.assertTrue(shedder.isLowValue("[1.0s][debug][gc,phases] GC(1) Phase"));
+        Assert.assertTrue(shedder.isLowValue("[1.0s][info ][gc,task    ] GC(1) Using 2 workers"));
+        Assert.assertFalse(shedder.isLowValue("[1.0s][info ][gc,phases] GC(1) Pause Mark End"));
+        Assert.assertFalse(shedder.isLowValue("2.079: [GC pause (G1 Evacuation Pause) (young)"));
+    }
+
+    private static double sum(Collector metric, String suffix, String path) {
+        double sum = 0;
+        for (Collector.MetricFamilySamples family : metric.collect()) {
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                if (sample.name.endsWith(suffix) && sample.labelValues.contains(path)) {
+                    sum += sample.value;
+                }
+            }
+        }
+        return sum;
+    }
+
     @Test
     public void testJdk11CMS() throws Exception {
         File log = new File("src/test/resources/parser/jdk11-cms-and-parnew.log");
@@ -114,4 +242,156 @@ public class ParserTest {
         Files.lines(log.toPath()).forEach(handler::consume);
         Mockito.verify(handler, Mockito.times(6)).publish(isNotNull(), isNotNull());
     }
+
+    @Test
+    public void testReset() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-g1.log");
+        Diary diary = getDiary(log);
+        AbstractJVMEventHandler handler =
+                Mockito.mock(
+                        G1GCEventHandler.class,
+                        withSettings()
+                                .useConstructor(log, diary)
+                                .defaultAnswer(CALLS_REAL_METHODS));
+        Files.lines(log.toPath()).forEach(handler::consume);
+        // the rotated file is parsed with the diary of the original one
+        handler.reset();
+        Files.lines(log.toPath()).forEach(handler::consume);
+        Mockito.verify(handler, Mockito.times(4)).publish(notNull(), notNull());
+    }
+
+    @Test
+    public void testFastG1Parser() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-g1.log");
+        List<String> lines = Files.readAllLines(log.toPath());
+        Diary diary = getDiary(log);
+        assertSameEvents(diary, lines);
+        // the region size is missing when tailing from the end
+        assertSameEvents(diary, lines.subList(1, lines.size()));
+        for (String type : Arrays.asList("Concurrent Start", "Mixed", "Prepare Mixed")) {
+            List<String> variant = new ArrayList<>();
+            for (String line : lines) {
+                variant.add(
+                        line.replace("(Normal)", "(" + type + ")")
+                                .replace("Survivor regions: 0->0(97)", "Survivor regions: 3->6(97)")
+                                .replace("Eden regions: 776->0(776)", "Eden regions: 776->0(770)"));
+            }
+            assertSameEvents(diary, variant);
+        }
+        // unknown lines of a claimed pause fall back to gctoolkit
+        List<String> unknown = new ArrayList<>(lines);
+        unknown.add(10, "[2.079s][info][gc,heap      ] GC(87) Archive regions: 0->0");
+        assertSameEvents(diary, unknown);
+        List<String> jdk11 = new ArrayList<>();
+        for (String line : lines) {
+            jdk11.add(
+                    line.contains("GC(87) Metaspace")
+                            ? "[2.079s][info][gc,metaspace ] GC(87) Metaspace:"
+                                    + " 6320K->6320K(1056768K)"
+                            : line);
+        }
+        assertSameEvents(diary, jdk11);
+    }
+
+    @Test
+    public void testCycleIndex() throws Exception {
+        File log = new File("src/test/resources/parser/jdk11-g1.log");
+        List<String> lines = Files.readAllLines(log.toPath());
+        GCCycleIndex cycles = new GCCycleIndex();
+        long offset = 0;
+        List<Long> starts = new ArrayList<>();
+        for (String line : lines) {
+            if (line.contains("GC(87)") && starts.isEmpty()
+                    || line.contains("GC(88)") && starts.size() == 1) {
+                starts.add(offset);
+            }
+            cycles.line(line, offset);
+            offset += line.length() + 1;
+        }
+        List<JVMEvent> events = parse(new UnifiedG1GCParser(), getDiary(log), lines);
+        Assert.assertEquals(2, events.size());
+        for (int i = 0; i < events.size(); ++i) {
+            Exemplar exemplar = cycles.exemplar(events.get(i), 0.001);
+            Assert.assertEquals(String.valueOf(87 + i), label(exemplar, "gc_id"));
+            Assert.assertEquals(String.valueOf(starts.get(i)), label(exemplar, "offset"));
+            Assert.assertNull(exemplar.getTimestampMs());
+        }
+        cycles.clear();
+        Assert.assertNull(cycles.exemplar(events.get(0), 0.001));
+    }
+
+    private static String label(Exemplar exemplar, String name) {
+        for (int i = 0; i < exemplar.getNumberOfLabels(); ++i) {
+            if (exemplar.getLabelName(i).equals(name)) {
+                return exemplar.getLabelValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static void assertSameEvents(Diary diary, List<String> lines) {
+        List<JVMEvent> expected = parse(new UnifiedG1GCParser(), diary, lines);
+        List<JVMEvent> actual = parse(new FastUnifiedG1GCParser(), diary, lines);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            G1GCPauseEvent e = (G1GCPauseEvent) expected.get(i);
+            G1GCPauseEvent a = (G1GCPauseEvent) actual.get(i);
+            Assert.assertEquals(e.getClass(), a.getClass());
+            Assert.assertEquals(e.getDateTimeStamp(), a.getDateTimeStamp());
+            Assert.assertEquals(e.getDuration(), a.getDuration(), 1e-9);
+            Assert.assertEquals(e.getGCCause(), a.getGCCause());
+            assertSamePool(e.getHeap(), a.getHeap());
+            assertSamePool(e.getEden(), a.getEden());
+            assertSamePool(e.getPermOrMetaspace(), a.getPermOrMetaspace());
+            Assert.assertEquals(e.getSurvivor() == null, a.getSurvivor() == null);
+            if (e.getSurvivor() != null) {
+                Assert.assertEquals(
+                        e.getSurvivor().getOccupancyBeforeCollection(),
+                        a.getSurvivor().getOccupancyBeforeCollection());
+                Assert.assertEquals(
+                        e.getSurvivor().getOccupancyAfterCollection(),
+                        a.getSurvivor().getOccupancyAfterCollection());
+                Assert.assertEquals(e.getSurvivor().getSize(), a.getSurvivor().getSize());
+            }
+            assertSameRegions(e.getEdenRegionSummary(), a.getEdenRegionSummary());
+            assertSameRegions(e.getSurvivorRegionSummary(), a.getSurvivorRegionSummary());
+            assertSameRegions(e.getOldRegionSummary(), a.getOldRegionSummary());
+            assertSameRegions(e.getHumongousRegionSummary(), a.getHumongousRegionSummary());
+            assertSameRegions(e.getArchiveRegionSummary(), a.getArchiveRegionSummary());
+        }
+    }
+
+    private static void assertSamePool(MemoryPoolSummary e, MemoryPoolSummary a) {
+        Assert.assertEquals(String.valueOf(e), String.valueOf(a));
+    }
+
+    private static void assertSameRegions(RegionSummary e, RegionSummary a) {
+        Assert.assertEquals(e == null, a == null);
+        if (e != null) {
+            Assert.assertEquals(e.getBefore(), a.getBefore());
+            Assert.assertEquals(e.getAfter(), a.getAfter());
+            Assert.assertEquals(e.getAssigned(), a.getAssigned());
+        }
+    }
+
+    static List<JVMEvent> parse(DataSourceParser parser, Diary diary, List<String> lines) {
+        List<JVMEvent> events = new ArrayList<>();
+        parser.diary(diary);
+        parser.publishTo(
+                new JVMEventChannel() {
+                    @Override
+                    public void registerListener(JVMEventChannelListener listener) {}
+
+                    @Override
+                    public void publish(ChannelName channel, JVMEvent event) {
+                        events.add(event);
+                    }
+
+                    @Override
+                    public void close() {}
+                });
+        lines.forEach(parser::receive);
+        return events;
+    }
 }
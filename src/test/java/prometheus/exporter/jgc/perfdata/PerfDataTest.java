@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.perfdata;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+import prometheus.exporter.jgc.util.OperatingSystem;
+
+public class PerfDataTest {
+
+    @Test
+    public void testCollect() throws Exception {
+        File file = File.createTempFile("hsperfdata", "");
+        file.deleteOnExit();
+
+        List<byte[]> entries = new ArrayList<>();
+        entries.add(longEntry("sun.os.hrt.frequency", 1_000_000_000L));
+        entries.add(stringEntry("sun.gc.collector.0.name", "G1 young collection pauses"));
+        entries.add(longEntry("sun.gc.collector.0.invocations", 3));
+        entries.add(longEntry("sun.gc.collector.0.time", 1_500_000_000L));
+        entries.add(stringEntry("sun.gc.generation.0.name", "young"));
+        entries.add(longEntry("sun.gc.generation.0.spaces", 1));
+        entries.add(stringEntry("sun.gc.generation.0.space.0.name", "eden"));
+        entries.add(longEntry("sun.gc.generation.0.space.0.used", 4096));
+        entries.add(longEntry("sun.gc.generation.0.space.0.capacity", 8192));
+        entries.add(longEntry("sun.gc.metaspace.used", 1024));
+        write(file, entries);
+
+        PerfDataCollector collector = new PerfDataCollector(file);
+        collector.update();
+        String path = file.getPath();
+        String host = OperatingSystem.getLocalHostName();
+
+        Assert.assertEquals(
+                3.0,
+                sample(
+                        "jgc_perfdata_collector_invocations_total",
+                        path,
+                        host,
+                        "G1 young collection pauses"),
+                0.0);
+        Assert.assertEquals(
+                1.5,
+                sample(
+                        "jgc_perfdata_collector_time_seconds_total",
+                        path,
+                        host,
+                        "G1 young collection pauses"),
+                0.0001);
+        Assert.assertEquals(
+                4096.0, sample("jgc_perfdata_space_used_bytes", path, host, "young", "eden"), 0.0);
+        Assert.assertEquals(
+                1024.0,
+                sample("jgc_perfdata_space_used_bytes", path, host, "metaspace", "metaspace"),
+                0.0);
+
+        // counters only grow by the delta of the raw value
+        entries.set(2, longEntry("sun.gc.collector.0.invocations", 5));
+        write(file, entries);
+        collector.update();
+        Assert.assertEquals(
+                5.0,
+                sample(
+                        "jgc_perfdata_collector_invocations_total",
+                        path,
+                        host,
+                        "G1 young collection pauses"),
+                0.0);
+
+        collector.close();
+        Assert.assertNull(sample("jgc_perfdata_space_used_bytes", path, host, "young", "eden"));
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        File dir = Files.createTempDirectory("hsperfdata").toFile();
+        dir.deleteOnExit();
+        File file = new File(dir, "1");
+        file.deleteOnExit();
+        List<byte[]> entries = new ArrayList<>();
+        entries.add(stringEntry("sun.gc.collector.0.name", "G1 young collection pauses"));
+        entries.add(longEntry("sun.gc.collector.0.invocations", 7));
+        write(file, entries);
+        PerfDataCollector collector = new PerfDataCollector(file);
+        collector.update();
+        Assert.assertFalse(collector.isReplaced());
+
+        // a new jvm with the same pid creates the file again
+        File next = new File(dir, "next");
+        entries.set(1, longEntry("sun.gc.collector.0.invocations", 1));
+        write(next, entries);
+        Files.move(next.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Assert.assertTrue(collector.isReplaced());
+        collector.close();
+
+        collector = new PerfDataCollector(file);
+        collector.update();
+        Assert.assertFalse(collector.isReplaced());
+        String path = file.getPath();
+        String host = OperatingSystem.getLocalHostName();
+        Assert.assertEquals(
+                1.0,
+                sample(
+                        "jgc_perfdata_collector_invocations_total",
+                        path,
+                        host,
+                        "G1 young collection pauses"),
+                0.0);
+        collector.close();
+    }
+
+    private Double sample(String name, String... labels) {
+        String[] labelNames =
+                labels.length == 3
+                        ? new String[] {"path", "host", "collector"}
+                        : new String[] {"path", "host", "generation", "space"};
+        return MetricRegistry.SINGLETON.getSampleValue(name, labelNames, labels);
+    }
+
+    private static void write(File file, List<byte[]> entries) throws Exception {
+        int size = PerfDataBuffer.PROLOGUE_SIZE;
+        for (byte[] entry : entries) {
+            size += entry.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(PerfDataBuffer.MAGIC);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 1).put((byte) 2).put((byte) 0).put((byte) 1);
+        buffer.putInt(size).putInt(0).putLong(0);
+        buffer.putInt(PerfDataBuffer.PROLOGUE_SIZE).putInt(entries.size());
+        for (byte[] entry : entries) {
+            buffer.put(entry);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.write(buffer.array());
+        }
+    }
+
+    private static byte[] longEntry(String name, long value) {
+        return entry(
+                name,
+                PerfDataBuffer.TYPE_LONG,
+                0,
+                ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+    }
+
+    private static byte[] stringEntry(String name, String value) {
+        byte[] bytes = new byte[value.length() + 1];
+        System.arraycopy(value.getBytes(StandardCharsets.UTF_8), 0, bytes, 0, value.length());
+        return entry(name, PerfDataBuffer.TYPE_BYTE, bytes.length, bytes);
+    }
+
+    private static byte[] entry(String name, byte type, int vectorLength, byte[] data) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int nameOffset = 20;
+        int dataOffset = (nameOffset + nameBytes.length + 1 + 7) & ~7;
+        int length = (dataOffset + data.length + 7) & ~7;
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(length).putInt(nameOffset).putInt(vectorLength);
+        buffer.put(type).put((byte) 0).put((byte) 0).put((byte) 0).putInt(dataOffset);
+        buffer.put(nameBytes);
+        buffer.position(dataOffset);
+        buffer.put(data);
+        return buffer.array();
+    }
+}
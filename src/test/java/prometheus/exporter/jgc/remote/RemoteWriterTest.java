@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.remote;
+
+import static prometheus.exporter.jgc.metric.MetricRegistry.GC_LOG_LINES;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.SampleNameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import prometheus.exporter.jgc.metric.MetricRegistry;
+
+public class RemoteWriterTest {
+    private HttpServer server;
+    private BlockingQueue<String> requests;
+    private AtomicInteger failures;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        requests = new LinkedBlockingQueue<>();
+        failures = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(
+                "/api/v1/write",
+                exchange -> {
+                    byte[] body = exchange.getRequestBody().readAllBytes();
+                    int status = 204;
+                    if (failures.getAndDecrement() > 0) {
+                        status = 503;
+                    } else if (!"snappy"
+                            .equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                        status = 400;
+                    } else {
+                        requests.add(new String(uncompress(body), StandardCharsets.UTF_8));
+                    }
+                    exchange.sendResponseHeaders(status, -1);
+                    exchange.close();
+                });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/write";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSnappy() {
+        Random random = new Random(42);
+        byte[] text = new byte[200_000];
+        for (int i = 0; i < text.length; ++i) {
+            text[i] = (byte) ('a' + random.nextInt(i % 1000 < 500 ? 4 : 26));
+        }
+        for (int length : new int[] {0, 3, 61, 300, 70_000, text.length}) {
+            byte[] input = new byte[length];
+            System.arraycopy(text, 0, input, 0, length);
+            Assert.assertArrayEquals(input, uncompress(Snappy.compress(input)));
+        }
+        byte[] repeated = new byte[100_000];
+        Assert.assertTrue(Snappy.compress(repeated).length < 5_000);
+        Assert.assertArrayEquals(repeated, uncompress(Snappy.compress(repeated)));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge.build()
+                .name("test_remote_gauge")
+                .help("test")
+                .labelNames("path")
+                .register(registry)
+                .labels("a")
+                .set(1);
+        failures.set(1);
+        RemoteWriter writer =
+                new RemoteWriter(registry, SampleNameFilter.ALLOW_ALL, url, 60_000, 1, 8, 3);
+        try {
+            writer.push();
+            Assert.assertNull(requests.poll());
+            writer.push();
+            for (int i = 0; i < 2; ++i) {
+                String request = requests.poll(5, TimeUnit.SECONDS);
+                Assert.assertNotNull(request);
+                Assert.assertTrue(request.contains("__name__"));
+                Assert.assertTrue(request.contains("test_remote_gauge"));
+            }
+            Assert.assertNull(requests.poll());
+        } finally {
+            writer.close();
+        }
+        // pushed once more on close
+        Assert.assertNotNull(requests.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDetach() throws Exception {
+        RemoteWriter writer =
+                new RemoteWriter(
+                        new CollectorRegistry(),
+                        SampleNameFilter.ALLOW_ALL,
+                        url,
+                        60_000,
+                        100,
+                        8,
+                        3);
+        try {
+            Object target = new Object();
+            GC_LOG_LINES.attach(target, "test_remote_path", "host").inc();
+            MetricRegistry.detach(target);
+            String request = requests.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(request);
+            Assert.assertTrue(request.contains("test_remote_path"));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testWriteRequest() throws Exception {
+        WriteRequest request = new WriteRequest();
+        request.add(
+                "test_remote_total",
+                Arrays.asList("path", "host"),
+                Arrays.asList("a.log", "h"),
+                1.5,
+                1_700_000_000_123L);
+        request.add("test_remote_gauge", Collections.emptyList(), Collections.emptyList(), -2, 0);
+        Assert.assertEquals(2, request.size());
+
+        UnknownFieldSet message = UnknownFieldSet.parseFrom(request.toByteArray());
+        Assert.assertEquals(Collections.singleton(1), message.asMap().keySet());
+        List<ByteString> series = message.getField(1).getLengthDelimitedList();
+        Assert.assertEquals(2, series.size());
+
+        UnknownFieldSet first = UnknownFieldSet.parseFrom(series.get(0));
+        Assert.assertEquals(
+                Arrays.asList(
+                        Arrays.asList("__name__", "test_remote_total"),
+                        Arrays.asList("host", "h"),
+                        Arrays.asList("path", "a.log")),
+                labels(first));
+        UnknownFieldSet sample =
+                UnknownFieldSet.parseFrom(first.getField(2).getLengthDelimitedList().get(0));
+        Assert.assertEquals(
+                Collections.singletonList(Double.doubleToRawLongBits(1.5)),
+                sample.getField(1).getFixed64List());
+        Assert.assertEquals(
+                Collections.singletonList(1_700_000_000_123L), sample.getField(2).getVarintList());
+
+        UnknownFieldSet second = UnknownFieldSet.parseFrom(series.get(1));
+        Assert.assertEquals(
+                Collections.singletonList(Arrays.asList("__name__", "test_remote_gauge")),
+                labels(second));
+        sample = UnknownFieldSet.parseFrom(second.getField(2).getLengthDelimitedList().get(0));
+        Assert.assertEquals(
+                Collections.singletonList(Double.doubleToRawLongBits(-2)),
+                sample.getField(1).getFixed64List());
+        Assert.assertEquals(Collections.singletonList(0L), sample.getField(2).getVarintList());
+    }
+
+    /** Name and value of each label of a time series, in encoded order. */
+    private static List<List<String>> labels(UnknownFieldSet series) throws Exception {
+        List<List<String>> labels = new ArrayList<>();
+        for (ByteString bytes : series.getField(1).getLengthDelimitedList()) {
+            UnknownFieldSet label = UnknownFieldSet.parseFrom(bytes);
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2)), label.asMap().keySet());
+            labels.add(
+                    Arrays.asList(
+                            label.getField(1).getLengthDelimitedList().get(0).toStringUtf8(),
+                            label.getField(2).getLengthDelimitedList().get(0).toStringUtf8()));
+        }
+        return labels;
+    }
+
+    /** Decoded by the reference implementation. */
+    static byte[] uncompress(byte[] in) {
+        try {
+            return org.xerial.snappy.Snappy.uncompress(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 The  jgc_exporter Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package prometheus.exporter.jgc.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import prometheus.exporter.jgc.metric.DDSketch;
+import prometheus.exporter.jgc.metric.Distribution;
+
+public class SketchMergeTest {
+
+    @After
+    public void tearDown() {
+        Distribution.configureSketches(null, DDSketch.DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        Distribution.configureSketches(
+                Collections.singletonList("test_sketch_seconds"),
+                DDSketch.DEFAULT_RELATIVE_ACCURACY);
+        Distribution first = sketch();
+        Distribution second = sketch();
+        for (int i = 1; i <= 100; ++i) {
+            first.labels("a", "young").observe(i / 100.0);
+            second.labels("b", "young").observe(i);
+            second.labels("b", "full").observe(i);
+        }
+        second.labels("b", "idle");
+
+        List<LabeledSketch> decoded =
+                SketchCodec.decode(
+                        new ByteArrayInputStream(
+                                SketchCodec.encode(SketchCodec.of(Arrays.asList(first, second)))));
+        Assert.assertEquals(3, decoded.size());
+        Assert.assertEquals("test_sketch_seconds", decoded.get(0).getName());
+
+        List<LabeledSketch> merged =
+                SketchMerge.merge(
+                        decoded, new HashSet<>(Collections.singletonList("category")), null);
+        Assert.assertEquals(2, merged.size());
+        LabeledSketch young = merged.get(0);
+        Assert.assertEquals(Collections.singletonMap("category", "young"), young.getLabels());
+        Assert.assertEquals(200, young.getSketch().getCount());
+        Assert.assertEquals(100, young.getSketch().quantile(1), 0.0);
+        Assert.assertEquals(1, young.getSketch().quantile(0.5), 0.01);
+
+        merged = SketchMerge.merge(decoded, null, new HashSet<>(Arrays.asList("path", "host")));
+        Assert.assertEquals(2, merged.size());
+    }
+
+    private static Distribution sketch() {
+        Distribution distribution =
+                Distribution.build()
+                        .name("test_sketch_seconds")
+                        .help("test")
+                        .labelNames("path", "category")
+                        .create();
+        Assert.assertTrue(distribution.isSketch());
+        return distribution;
+    }
+}
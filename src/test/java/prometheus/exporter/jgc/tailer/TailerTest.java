@@ -17,7 +17,9 @@ package prometheus.exporter.jgc.tailer;
 
 import java.io.*;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -51,15 +53,22 @@ public class TailerTest {
                         Config.DEFAULT_LINES_PER_SECOND);
 
         List<String> actualLines = new ArrayList<>();
+        String content = new String(Files.readAllBytes(temp.toPath()));
+        Assert.assertEquals(temp.length(), tailer.lag());
 
         while (true) {
             List<String> lines = tailer.readLines();
             if (lines.isEmpty()) {
                 break;
             }
+            for (int i = 0; i < lines.size(); ++i) {
+                Assert.assertTrue(content.startsWith(lines.get(i), (int) tailer.offset(i)));
+            }
             actualLines.addAll(lines);
         }
         Assert.assertEquals(expectLines, actualLines);
+        Assert.assertEquals(0, tailer.lag());
+        Assert.assertFalse(tailer.isThrottled());
     }
 
     @Test(timeout = 10000)
@@ -87,6 +96,9 @@ public class TailerTest {
             if (lines.isEmpty()) {
                 continue;
             }
+            // the second line waits for the limit
+            Assert.assertTrue(tailer.isThrottled());
+            Assert.assertTrue(tailer.lag() > 0);
             total += lines.size();
             Assert.assertEquals(1, lines.size());
         }
@@ -325,4 +337,74 @@ public class TailerTest {
         Object currFileKey = OperatingSystem.getFileKey(file);
         Assert.assertNotEquals(fileKey, currFileKey);
     }
+
+    @Test
+    public void testDedupeFileKey() throws Exception {
+        if (OperatingSystem.isWindows()) {
+            return;
+        }
+        File tmpdir = Files.createTempDirectory("jgc-dedupe").toFile();
+        tmpdir.deleteOnExit();
+        File file = new File(tmpdir, "gc.log");
+        file.createNewFile();
+        file.deleteOnExit();
+        File link = new File(tmpdir, "gc-link.log");
+        Files.createSymbolicLink(link.toPath(), file.toPath());
+        link.deleteOnExit();
+
+        String glob = tmpdir.getPath() + FileSystems.getDefault().getSeparator() + "*.log";
+        TailerMatcher matcher = new TailerMatcher(null, glob + "," + file.getPath(), 0);
+        List<File> actualFiles = matcher.findMatchingFiles();
+        Assert.assertEquals(1, actualFiles.size());
+        Assert.assertEquals(file.toPath().toRealPath().toFile(), actualFiles.get(0));
+        Assert.assertEquals(1, matcher.getAliases(actualFiles.get(0)).size());
+        Assert.assertEquals(
+                OperatingSystem.getFileKey(file), matcher.getFileKey(actualFiles.get(0)));
+    }
+
+    @Test
+    public void testProcFind() throws Exception {
+        if (OperatingSystem.isWindows()) {
+            return;
+        }
+        File proc = Files.createTempDirectory("jgc-proc").toFile();
+        proc.deleteOnExit();
+
+        File unified = new File(proc, "123/cwd/logs/gc-123.log");
+        unified.getParentFile().mkdirs();
+        unified.createNewFile();
+        new File(proc, "123/root").mkdirs();
+        Files.write(
+                new File(proc, "123/cmdline").toPath(),
+                "/usr/bin/java\0-Xlog:gc*,gc+heap=debug:file=logs/gc-%p.log:t,tags\0-cp\0a.jar\0com.example.Main\0"
+                        .getBytes());
+
+        File legacy = new File(proc, "456/root/var/log/app/gc.log.0.current");
+        legacy.getParentFile().mkdirs();
+        legacy.createNewFile();
+        new File(proc, "456/cwd").mkdirs();
+        Files.write(
+                new File(proc, "456/cmdline").toPath(),
+                "java\0-Xloggc:/var/log/app/gc.log\0-XX:+UseGCLogFileRotation\0-jar\0/opt/app.jar\0"
+                        .getBytes());
+
+        new File(proc, "789").mkdirs();
+        Files.write(new File(proc, "789/cmdline").toPath(), "/bin/bash\0-Xloggc:x\0".getBytes());
+
+        List<File> actualFiles = new ProcTailerSource(proc.getPath()).findMatchingFiles();
+        actualFiles.sort(Comparator.comparing(File::getPath));
+        Assert.assertEquals(2, actualFiles.size());
+        Assert.assertEquals(
+                unified.toPath().toRealPath(), actualFiles.get(0).toPath().toRealPath());
+        Assert.assertEquals(legacy.toPath().toRealPath(), actualFiles.get(1).toPath().toRealPath());
+
+        Assert.assertEquals(
+                "com.example.Main",
+                ProcTailerSource.findMainClass(
+                        Arrays.asList("java", "-cp", "a.jar", "com.example.Main")));
+        Assert.assertEquals(
+                "app.jar",
+                ProcTailerSource.findMainClass(
+                        Arrays.asList("java", "-Xmx1g", "-jar", "/opt/app.jar")));
+    }
 }